@@ -0,0 +1,67 @@
+package com.example.qrcodegenerator.actuator;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+@Endpoint(id = "cacheregions")
+public class CacheRegionsEndpoint
+{
+    private final Statistics statistics;
+
+    public CacheRegionsEndpoint(EntityManagerFactory entityManagerFactory)
+    {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ReadOperation
+    public Map<String, Object> regions()
+    {
+        Map<String, Object> regions = new TreeMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames())
+        {
+            regions.put(regionName, describe(statistics.getCacheRegionStatistics(regionName)));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        result.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        result.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        result.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        result.put("regions", regions);
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> region(@Selector String name)
+    {
+        CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(name);
+        return regionStatistics != null ? describe(regionStatistics) : null;
+    }
+
+    private Map<String, Object> describe(CacheRegionStatistics regionStatistics)
+    {
+        Map<String, Object> region = new LinkedHashMap<>();
+        if (regionStatistics == null)
+        {
+            return region;
+        }
+        region.put("hits", regionStatistics.getHitCount());
+        region.put("misses", regionStatistics.getMissCount());
+        region.put("puts", regionStatistics.getPutCount());
+        region.put("elementsInMemory", regionStatistics.getElementCountInMemory());
+        region.put("sizeInMemory", regionStatistics.getSizeInMemory());
+        return region;
+    }
+}
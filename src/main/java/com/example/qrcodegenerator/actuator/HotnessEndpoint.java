@@ -0,0 +1,75 @@
+package com.example.qrcodegenerator.actuator;
+
+import com.example.qrcodegenerator.cache.HotnessTracker;
+import com.example.qrcodegenerator.cache.TieredImageStore;
+import com.example.qrcodegenerator.render.RenderSpec;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "hotness")
+public class HotnessEndpoint
+{
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final HotnessTracker hotness;
+    private final TieredImageStore imageStore;
+
+    public HotnessEndpoint(HotnessTracker hotness, TieredImageStore imageStore)
+    {
+        this.hotness = hotness;
+        this.imageStore = imageStore;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotness(@Nullable Integer limit)
+    {
+        int top = limit != null && limit > 0 ? limit : DEFAULT_LIMIT;
+
+        Map<String, Object> store = new LinkedHashMap<>();
+        store.put("enabled", imageStore.isEnabled());
+        store.put("memoryHits", imageStore.getMemoryHits());
+        store.put("diskHits", imageStore.getDiskHits());
+        store.put("misses", imageStore.getMisses());
+        store.put("prerendered", imageStore.getPrerendered());
+
+        List<Map<String, Object>> renders = new ArrayList<>();
+        for (HotnessTracker.HeavyHitter<RenderSpec> hitter : hotness.topRenders(top))
+        {
+            RenderSpec spec = hitter.value();
+            Map<String, Object> render = new LinkedHashMap<>();
+            render.put("key", hitter.key());
+            render.put("data", spec.getData());
+            render.put("size", spec.getWidth() + "x" + spec.getHeight());
+            render.put("profile", spec.getProfile());
+            render.put("logo", spec.getLogo());
+            render.put("estimate", hitter.estimate());
+            renders.add(render);
+        }
+
+        List<Map<String, Object>> searches = new ArrayList<>();
+        for (HotnessTracker.HeavyHitter<String> hitter : hotness.topSearches(top))
+        {
+            Map<String, Object> search = new LinkedHashMap<>();
+            search.put("term", hitter.key());
+            search.put("estimate", hitter.estimate());
+            searches.add(search);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", hotness.isEnabled());
+        result.put("renderAdmissionMinFrequency", hotness.getRenderAdmissionMinFrequency());
+        result.put("searchAdmissionMinFrequency", hotness.getSearchAdmissionMinFrequency());
+        result.put("imageStore", store);
+        result.put("renders", renders);
+        result.put("searches", searches);
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.qrcodegenerator.cache;
+
+// Count-min sketch with 8-bit counters packed eight to a long and four hash rows. Increments are conservative
+// (only the counters at the current minimum move), and age() halves every counter so old popularity fades.
+// Not thread-safe for writes; HotnessTracker applies increments and aging under its drain lock. A concurrent
+// frequency() only sees a slightly stale estimate.
+final class FrequencySketch
+{
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long HALF_MASK = 0x7F7F7F7F7F7F7F7FL;
+    private static final int MAX_COUNT = 0xFF;
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedEntries)
+    {
+        int size = Math.min(Math.max(64, expectedEntries), MAX_TABLE_SIZE);
+        size = Integer.highestOneBit(size - 1) << 1;
+        this.table = new long[size];
+        this.tableMask = size - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    int frequency(long hash)
+    {
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++)
+        {
+            long h = rehash(hash, row);
+            frequency = Math.min(frequency, (int) (table[index(h)] >>> offset(h)) & MAX_COUNT);
+        }
+        return frequency;
+    }
+
+    // Returns true when this addition triggered aging.
+    boolean increment(long hash)
+    {
+        int current = frequency(hash);
+        if (current == MAX_COUNT)
+        {
+            return false;
+        }
+        for (int row = 0; row < SEEDS.length; row++)
+        {
+            long h = rehash(hash, row);
+            int index = index(h);
+            int offset = offset(h);
+            if (((table[index] >>> offset) & MAX_COUNT) == current)
+            {
+                table[index] += 1L << offset;
+            }
+        }
+        if (++additions >= sampleSize)
+        {
+            age();
+            return true;
+        }
+        return false;
+    }
+
+    void age()
+    {
+        for (int i = 0; i < table.length; i++)
+        {
+            table[i] = (table[i] >>> 1) & HALF_MASK;
+        }
+        additions = 0;
+    }
+
+    private int index(long h)
+    {
+        return (int) h & tableMask;
+    }
+
+    private static int offset(long h)
+    {
+        return (int) ((h >>> 40) & 7) << 3;
+    }
+
+    private static long rehash(long hash, int row)
+    {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.qrcodegenerator.cache;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.render.RenderSpec;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Recent popularity of rendered images and search terms, counted in a FrequencySketch that is halved every
+// decay interval, so what was hot an hour ago fades out. Keys below the admission frequency are served but not
+// cached, which keeps one-hit payloads from bulk jobs out of the caches. The most frequent keys seen are kept
+// as heavy hitters for pre-rendering and the hotness actuator endpoint.
+// Recording runs on every image request, so it only appends to a per-thread-striped ring buffer; whichever
+// thread wins tryLock drains all buffers into the sketch, as Caffeine does for reads. A full buffer drops the
+// event, which only loses a sample of popularity.
+@Component
+public class HotnessTracker
+{
+    private static final long RENDER_SALT = 0x52454e44L;
+    private static final long SEARCH_SALT = 0x53524348L;
+    private static final int BUFFER_SIZE = 16;
+    private static final int DRAIN_THRESHOLD = BUFFER_SIZE / 2;
+
+    private final boolean enabled;
+    private final int renderMinFrequency;
+    private final int searchMinFrequency;
+    private final long decayNanos;
+    private final FrequencySketch sketch;
+    private final HeavyHitters<RenderSpec> renders;
+    private final HeavyHitters<String> searches;
+    private final RecordBuffer[] buffers;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private long nextDecay;
+
+    public HotnessTracker(QRCodeProperties properties)
+    {
+        QRCodeProperties.Hotness settings = properties.getHotness();
+        this.enabled = settings.isEnabled();
+        this.renderMinFrequency = settings.getRenderAdmissionMinFrequency();
+        this.searchMinFrequency = settings.getSearchAdmissionMinFrequency();
+        this.decayNanos = settings.getDecayInterval().toNanos();
+        this.sketch = enabled ? new FrequencySketch(settings.getExpectedEntries()) : null;
+        this.renders = new HeavyHitters<>(settings.getTrackedHitters());
+        this.searches = new HeavyHitters<>(settings.getTrackedHitters());
+        this.buffers = new RecordBuffer[Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1)];
+        for (int i = 0; i < buffers.length; i++)
+        {
+            buffers[i] = new RecordBuffer();
+        }
+        this.nextDecay = System.nanoTime() + decayNanos;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void recordRender(String key, RenderSpec spec)
+    {
+        if (enabled && key != null)
+        {
+            record(new Event(renders, key, spec, hash(key, RENDER_SALT)));
+        }
+    }
+
+    public void recordSearch(String term)
+    {
+        if (enabled && term != null)
+        {
+            record(new Event(searches, term, term, hash(term, SEARCH_SALT)));
+        }
+    }
+
+    public boolean admitRender(String key)
+    {
+        return !enabled || frequency(hash(key, RENDER_SALT)) >= renderMinFrequency;
+    }
+
+    public boolean admitSearch(String term)
+    {
+        return !enabled || frequency(hash(term, SEARCH_SALT)) >= searchMinFrequency;
+    }
+
+    public List<HeavyHitter<RenderSpec>> topRenders(int limit)
+    {
+        return top(renders, limit);
+    }
+
+    public List<HeavyHitter<String>> topSearches(int limit)
+    {
+        return top(searches, limit);
+    }
+
+    public int getRenderAdmissionMinFrequency()
+    {
+        return renderMinFrequency;
+    }
+
+    public int getSearchAdmissionMinFrequency()
+    {
+        return searchMinFrequency;
+    }
+
+    private void record(Event event)
+    {
+        RecordBuffer buffer = buffers[(int) mix(Thread.currentThread().getId()) & (buffers.length - 1)];
+        if (!buffer.offer(event) || buffer.pending() >= DRAIN_THRESHOLD)
+        {
+            tryDrain();
+        }
+    }
+
+    // admission is only asked on a cache miss, so it can afford to fold in the buffered events first
+    private int frequency(long hash)
+    {
+        tryDrain();
+        // may race with a drain on another thread and read a slightly stale estimate
+        return sketch.frequency(hash);
+    }
+
+    private <V> List<HeavyHitter<V>> top(HeavyHitters<V> hitters, int limit)
+    {
+        drainLock.lock();
+        try
+        {
+            if (enabled)
+            {
+                drain();
+            }
+            return hitters.top(limit);
+        }
+        finally
+        {
+            drainLock.unlock();
+        }
+    }
+
+    private void tryDrain()
+    {
+        if (drainLock.tryLock())
+        {
+            try
+            {
+                drain();
+            }
+            finally
+            {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    private void drain()
+    {
+        long now = System.nanoTime();
+        if (now - nextDecay >= 0)
+        {
+            age();
+            nextDecay = now + decayNanos;
+        }
+        for (RecordBuffer buffer : buffers)
+        {
+            buffer.drain(this::apply);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void apply(Event event)
+    {
+        if (sketch.increment(event.hash))
+        {
+            renders.age();
+            searches.age();
+        }
+        ((HeavyHitters<Object>) event.hitters).offer(event.key, event.value, sketch.frequency(event.hash));
+    }
+
+    private void age()
+    {
+        sketch.age();
+        renders.age();
+        searches.age();
+    }
+
+    private static long mix(long value)
+    {
+        long h = value * 0x9e3779b97f4a7c15L;
+        return h ^ (h >>> 32);
+    }
+
+    // 64-bit FNV-1a; String.hashCode leaves too few bits for four independent sketch rows
+    private static long hash(String key, long salt)
+    {
+        long hash = 0xcbf29ce484222325L ^ salt;
+        for (int i = 0; i < key.length(); i++)
+        {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public record HeavyHitter<V>(String key, V value, int estimate)
+    {
+    }
+
+    // Space-saving style candidate list: a new key replaces the least frequent candidate once it is counted
+    // more often than that candidate.
+    private static final class HeavyHitters<V>
+    {
+        private final int capacity;
+        private final Map<String, Candidate<V>> candidates = new HashMap<>();
+        // lower bound of the smallest estimate, so most offers skip the scan for a victim
+        private int minEstimate;
+
+        private HeavyHitters(int capacity)
+        {
+            this.capacity = capacity;
+        }
+
+        private void offer(String key, V value, int estimate)
+        {
+            Candidate<V> candidate = candidates.get(key);
+            if (candidate != null)
+            {
+                candidate.estimate = estimate;
+                return;
+            }
+            if (candidates.size() < capacity)
+            {
+                candidates.put(key, new Candidate<>(value, estimate));
+                return;
+            }
+            if (capacity == 0 || estimate <= minEstimate)
+            {
+                return;
+            }
+
+            String victim = null;
+            int smallest = Integer.MAX_VALUE;
+            for (Map.Entry<String, Candidate<V>> entry : candidates.entrySet())
+            {
+                if (entry.getValue().estimate < smallest)
+                {
+                    smallest = entry.getValue().estimate;
+                    victim = entry.getKey();
+                }
+            }
+            minEstimate = smallest;
+            if (estimate > smallest)
+            {
+                candidates.remove(victim);
+                candidates.put(key, new Candidate<>(value, estimate));
+            }
+        }
+
+        private void age()
+        {
+            Iterator<Candidate<V>> iterator = candidates.values().iterator();
+            while (iterator.hasNext())
+            {
+                Candidate<V> candidate = iterator.next();
+                candidate.estimate >>>= 1;
+                if (candidate.estimate == 0)
+                {
+                    iterator.remove();
+                }
+            }
+            minEstimate >>>= 1;
+        }
+
+        private List<HeavyHitter<V>> top(int limit)
+        {
+            List<HeavyHitter<V>> top = new ArrayList<>(candidates.size());
+            candidates.forEach((key, candidate) ->
+                    top.add(new HeavyHitter<>(key, candidate.value, candidate.estimate)));
+            top.sort(Comparator.comparingInt((HeavyHitter<V> hitter) -> hitter.estimate()).reversed()
+                    .thenComparing(HeavyHitter::key));
+            return top.size() > limit ? new ArrayList<>(top.subList(0, Math.max(0, limit))) : top;
+        }
+    }
+
+    private record Event(HeavyHitters<?> hitters, String key, Object value, long hash)
+    {
+    }
+
+    // Bounded multi-producer, single-consumer ring; producers that lose the race for a slot drop their event.
+    private static final class RecordBuffer
+    {
+        private final AtomicReferenceArray<Event> slots = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong writes = new AtomicLong();
+        private volatile long reads;
+
+        private boolean offer(Event event)
+        {
+            long tail = writes.get();
+            if (tail - reads >= BUFFER_SIZE || !writes.compareAndSet(tail, tail + 1))
+            {
+                return false;
+            }
+            slots.lazySet((int) tail & (BUFFER_SIZE - 1), event);
+            return true;
+        }
+
+        private int pending()
+        {
+            return (int) (writes.get() - reads);
+        }
+
+        // only called under the drain lock
+        private void drain(Consumer<Event> consumer)
+        {
+            long head = reads;
+            long tail = writes.get();
+            for (; head < tail; head++)
+            {
+                int index = (int) head & (BUFFER_SIZE - 1);
+                Event event = slots.get(index);
+                if (event == null)
+                {
+                    // claimed but not yet published; picked up by the next drain
+                    break;
+                }
+                slots.lazySet(index, null);
+                consumer.accept(event);
+            }
+            reads = head;
+        }
+    }
+
+    private static final class Candidate<V>
+    {
+        private final V value;
+        private int estimate;
+
+        private Candidate(V value, int estimate)
+        {
+            this.value = value;
+            this.estimate = estimate;
+        }
+    }
+}
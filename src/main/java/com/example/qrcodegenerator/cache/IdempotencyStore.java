@@ -0,0 +1,189 @@
+package com.example.qrcodegenerator.cache;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.exception.IdempotencyKeyReuseException;
+import com.example.qrcodegenerator.exception.IdempotentRequestInProgressException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Records the response of the first request for each Idempotency-Key. A retry with the same key and payload
+// gets that response replayed; a retry that arrives while the first request is still running waits for it, up
+// to the configured wait timeout, and then gets a 409 to retry later. Failed requests are forgotten so they can be
+// retried. Neither the TTL nor the size bound drops a request that is still running, since a retry would then run
+// it a second time.
+@Component
+public class IdempotencyStore
+{
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final Clock clock;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Duration waitTimeout;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    public IdempotencyStore(Clock clock, QRCodeProperties properties)
+    {
+        this.clock = clock;
+        this.ttl = properties.getIdempotency().getTtl();
+        this.maxEntries = properties.getIdempotency().getMaxEntries();
+        this.waitTimeout = properties.getIdempotency().getWaitTimeout();
+    }
+
+    public <T> ResponseEntity<T> execute(String key, String operation, String fingerprint,
+                                         Supplier<ResponseEntity<T>> action)
+    {
+        if (key == null)
+        {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+        {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String scopedKey = operation + ":" + key;
+        Entry entry;
+        boolean owner = false;
+        synchronized (this)
+        {
+            Instant now = clock.instant();
+            expire(now);
+            entry = entries.get(scopedKey);
+            if (entry == null)
+            {
+                entry = new Entry(fingerprint, now);
+                entries.put(scopedKey, entry);
+                owner = true;
+                evictOverflow();
+            }
+        }
+
+        if (!entry.fingerprint.equals(fingerprint))
+        {
+            throw new IdempotencyKeyReuseException("Idempotency-Key '" + key
+                    + "' was already used with a different request");
+        }
+        if (!owner)
+        {
+            return replay(await(key, entry.response));
+        }
+
+        try
+        {
+            ResponseEntity<T> response = action.get();
+            entry.response.complete(response);
+            return response;
+        }
+        catch (RuntimeException | Error e)
+        {
+            forget(scopedKey, entry);
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    private synchronized void forget(String scopedKey, Entry entry)
+    {
+        entries.remove(scopedKey, entry);
+    }
+
+    private void expire(Instant now)
+    {
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (oldest.hasNext())
+        {
+            Entry entry = oldest.next();
+            if (entry.createdAt.plus(ttl).isAfter(now))
+            {
+                return;
+            }
+            if (entry.response.isDone())
+            {
+                oldest.remove();
+            }
+        }
+    }
+
+    private void evictOverflow()
+    {
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (entries.size() > maxEntries && oldest.hasNext())
+        {
+            if (oldest.next().response.isDone())
+            {
+                oldest.remove();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ResponseEntity<T> replay(ResponseEntity<?> response)
+    {
+        return (ResponseEntity<T>) ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+
+    private ResponseEntity<?> await(String key, CompletableFuture<ResponseEntity<?>> response)
+    {
+        try
+        {
+            return response.get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            throw new IdempotentRequestInProgressException("A request with Idempotency-Key '" + key
+                    + "' is still in progress");
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IdempotentRequestInProgressException("A request with Idempotency-Key '" + key
+                    + "' is still in progress");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException runtimeException)
+            {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error)
+            {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static final class Entry
+    {
+        private final String fingerprint;
+        private final Instant createdAt;
+        private final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+
+        private Entry(String fingerprint, Instant createdAt)
+        {
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.qrcodegenerator.cache;
+
+import com.example.qrcodegenerator.render.PngSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Image bytes live in direct-buffer slabs; only the key index is on heap. Slabs form a ring that is filled in
+// order, and moving onto a slab evicts everything stored in it, so memory use never exceeds maxBytes.
+// Readers pin a slab while copying or streaming from it; a pinned slab is skipped when the ring wraps onto it,
+// and a write is only dropped when every other slab is pinned.
+final class OffHeapImageArena
+{
+    private final int slabBytes;
+    private final ByteBuffer[] slabs;
+    private final List<List<String>> slabKeys;
+    private final AtomicIntegerArray pins;
+    private final Map<String, Entry> index = new HashMap<>();
+    private int activeSlab = -1;
+    private int writePosition;
+
+    OffHeapImageArena(long maxBytes, int slabBytes)
+    {
+        if (slabBytes <= 0)
+        {
+            throw new IllegalArgumentException("Slab size must be positive");
+        }
+        int slabCount = (int) Math.max(2, Math.min(Integer.MAX_VALUE, maxBytes / slabBytes));
+        this.slabBytes = slabBytes;
+        this.slabs = new ByteBuffer[slabCount];
+        this.slabKeys = new ArrayList<>(slabCount);
+        for (int i = 0; i < slabCount; i++)
+        {
+            slabKeys.add(new ArrayList<>());
+        }
+        this.pins = new AtomicIntegerArray(slabCount);
+    }
+
+    byte[] get(String key)
+    {
+        Entry entry = pin(key);
+        if (entry == null)
+        {
+            return null;
+        }
+        try
+        {
+            byte[] image = new byte[entry.length];
+            slabs[entry.slab].get(entry.offset, image);
+            return image;
+        }
+        finally
+        {
+            pins.decrementAndGet(entry.slab);
+        }
+    }
+
+    boolean writeTo(String key, PngSink sink) throws IOException
+    {
+        Entry entry = pin(key);
+        if (entry == null)
+        {
+            return false;
+        }
+        try
+        {
+            sink.write(slabs[entry.slab].slice(entry.offset, entry.length).asReadOnlyBuffer());
+            return true;
+        }
+        finally
+        {
+            pins.decrementAndGet(entry.slab);
+        }
+    }
+
+    synchronized void put(String key, byte[] image)
+    {
+        if (image.length > slabBytes || index.containsKey(key))
+        {
+            return;
+        }
+        if (activeSlab < 0 || writePosition + image.length > slabBytes)
+        {
+            if (!advance())
+            {
+                return;
+            }
+        }
+        slabs[activeSlab].put(writePosition, image);
+        index.put(key, new Entry(activeSlab, writePosition, image.length));
+        slabKeys.get(activeSlab).add(key);
+        writePosition += image.length;
+    }
+
+    synchronized int size()
+    {
+        return index.size();
+    }
+
+    synchronized void clear()
+    {
+        index.clear();
+        slabKeys.forEach(List::clear);
+        activeSlab = -1;
+        writePosition = 0;
+    }
+
+    // pins are only taken under the monitor, so a slab seen unpinned in advance() stays unread until it is refilled
+    private synchronized Entry pin(String key)
+    {
+        Entry entry = index.get(key);
+        if (entry != null)
+        {
+            pins.incrementAndGet(entry.slab);
+        }
+        return entry;
+    }
+
+    private boolean advance()
+    {
+        for (int step = 1; step <= slabs.length; step++)
+        {
+            int next = (activeSlab + step) % slabs.length;
+            if (next != activeSlab && pins.get(next) == 0)
+            {
+                recycle(next);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recycle(int next)
+    {
+        List<String> evicted = slabKeys.get(next);
+        for (String key : evicted)
+        {
+            Entry entry = index.get(key);
+            if (entry != null && entry.slab == next)
+            {
+                index.remove(key);
+            }
+        }
+        evicted.clear();
+        if (slabs[next] == null)
+        {
+            slabs[next] = ByteBuffer.allocateDirect(slabBytes);
+        }
+        activeSlab = next;
+        writePosition = 0;
+    }
+
+    private static final class Entry
+    {
+        private final int slab;
+        private final int offset;
+        private final int length;
+
+        private Entry(int slab, int offset, int length)
+        {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.example.qrcodegenerator.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only segment files read through memory-mapped buffers. Only the index lives on heap.
+// When there are more than maxSegments segments, the oldest one is compacted in the background: entries
+// read since they were written are copied forward and the rest are dropped. The compacted segment stays mapped
+// and is rewritten from the start by the next roll, so the store never holds more than maxSegments + 1 files
+// and never unlinks a file that is still mapped.
+@Slf4j
+final class SegmentFileStore implements Closeable
+{
+    private static final int MAGIC = 0x51524349;
+    private static final int KEY_BYTES = 32;
+    private static final int HEADER_BYTES = 4 + KEY_BYTES + 4 + 4;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final ExecutorService compactor;
+    private final Map<String, Location> index = new HashMap<>();
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final ArrayDeque<Segment> free = new ArrayDeque<>();
+    private long nextSegmentId;
+    private boolean compacting;
+
+    SegmentFileStore(Path directory, int segmentBytes, int maxSegments) throws IOException
+    {
+        if (segmentBytes <= HEADER_BYTES)
+        {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(2, maxSegments);
+        this.compactor = Executors.newSingleThreadExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, "qrcode-image-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Files.createDirectories(directory);
+        recover();
+        if (segments.isEmpty())
+        {
+            roll();
+        }
+        scheduleCompactionIfNeeded();
+    }
+
+    byte[] get(String key)
+    {
+        Location location;
+        long stamp;
+        synchronized (this)
+        {
+            location = index.get(key);
+            if (location == null)
+            {
+                return null;
+            }
+            location.accessed = true;
+            // taken under the store lock, so a later recycle of this segment always invalidates it
+            stamp = location.segment.recycling.tryOptimisticRead();
+        }
+        // absolute reads leave the shared buffer position alone
+        byte[] image = new byte[location.length];
+        location.segment.buffer.get(location.offset, image);
+        // the segment was compacted and rewritten while we copied; treat it as a miss
+        return location.segment.recycling.validate(stamp) ? image : null;
+    }
+
+    synchronized void put(String key, byte[] image)
+    {
+        if (!index.containsKey(key))
+        {
+            append(key, image, false);
+        }
+    }
+
+    synchronized int size()
+    {
+        return index.size();
+    }
+
+    synchronized int segmentCount()
+    {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        compactor.shutdownNow();
+        Segment active = segments.peekLast();
+        if (active != null)
+        {
+            active.buffer.force();
+        }
+    }
+
+    private void append(String key, byte[] image, boolean accessed)
+    {
+        if (HEADER_BYTES + image.length > segmentBytes)
+        {
+            return;
+        }
+        Segment active = segments.peekLast();
+        if (active == null || active.writePosition + HEADER_BYTES + image.length > active.buffer.capacity())
+        {
+            active = roll();
+            if (active == null)
+            {
+                return;
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(image);
+        int offset = active.writePosition;
+        int end = offset + HEADER_BYTES + image.length;
+        MappedByteBuffer buffer = active.buffer;
+        if (end + 4 <= buffer.capacity())
+        {
+            // a recycled segment still holds old records further on; stop recovery at the end of the new ones
+            buffer.putInt(end, 0);
+        }
+        buffer.put(offset + 4, HexFormat.of().parseHex(key));
+        buffer.putInt(offset + 4 + KEY_BYTES, image.length);
+        buffer.putInt(offset + 8 + KEY_BYTES, (int) crc.getValue());
+        buffer.put(offset + HEADER_BYTES, image);
+        // the magic goes in last so a record torn by a crash is not picked up on recovery
+        buffer.putInt(offset, MAGIC);
+        active.writePosition = end;
+        active.keys.add(key);
+
+        Location location = new Location(active, offset + HEADER_BYTES, image.length);
+        location.accessed = accessed;
+        index.put(key, location);
+    }
+
+    private Segment roll()
+    {
+        Segment recycled = free.pollFirst();
+        if (recycled != null)
+        {
+            return recycle(recycled);
+        }
+        Path path = segmentPath(nextSegmentId);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            Segment segment = new Segment(nextSegmentId++, path, buffer);
+            segments.addLast(segment);
+            scheduleCompactionIfNeeded();
+            return segment;
+        }
+        catch (IOException e)
+        {
+            log.warn("Could not create image segment {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private Segment recycle(Segment segment)
+    {
+        // fails the validate() of every read that started on the old contents
+        segment.recycling.unlockWrite(segment.recycling.writeLock());
+        segment.buffer.putInt(0, 0);
+        segment.keys.clear();
+        segment.writePosition = 0;
+        Path path = segmentPath(nextSegmentId);
+        try
+        {
+            // renamed so recovery still orders segments by age; the mapping follows the file
+            Files.move(segment.path, path, StandardCopyOption.ATOMIC_MOVE);
+            segment.path = path;
+        }
+        catch (IOException e)
+        {
+            log.debug("Could not rename image segment {}: {}", segment.path, e.getMessage());
+        }
+        segment.id = nextSegmentId++;
+        segments.addLast(segment);
+        scheduleCompactionIfNeeded();
+        return segment;
+    }
+
+    private Path segmentPath(long id)
+    {
+        return directory.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX);
+    }
+
+    private void scheduleCompactionIfNeeded()
+    {
+        if (segments.size() > maxSegments && !compacting)
+        {
+            compacting = true;
+            compactor.execute(this::compact);
+        }
+    }
+
+    private void compact()
+    {
+        while (true)
+        {
+            Segment oldest;
+            synchronized (this)
+            {
+                if (segments.size() <= maxSegments || Thread.currentThread().isInterrupted())
+                {
+                    compacting = false;
+                    return;
+                }
+                oldest = segments.peekFirst();
+            }
+
+            int kept = 0;
+            for (String key : oldest.keys)
+            {
+                synchronized (this)
+                {
+                    Location location = index.get(key);
+                    if (location == null || location.segment != oldest)
+                    {
+                        continue;
+                    }
+                    index.remove(key);
+                    if (location.accessed)
+                    {
+                        byte[] image = new byte[location.length];
+                        oldest.buffer.get(location.offset, image);
+                        append(key, image, false);
+                        kept++;
+                    }
+                }
+            }
+
+            synchronized (this)
+            {
+                segments.remove(oldest);
+                free.addLast(oldest);
+            }
+            log.debug("Compacted image segment {}: kept {} of {} entries", oldest.id, kept, oldest.keys.size());
+        }
+    }
+
+    private void recover() throws IOException
+    {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory))
+        {
+            paths = files.filter(path -> segmentId(path) >= 0)
+                    .sorted(Comparator.comparingLong(SegmentFileStore::segmentId))
+                    .toList();
+        }
+        for (Path path : paths)
+        {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE))
+            {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            }
+            Segment segment = new Segment(segmentId(path), path, buffer);
+            segment.writePosition = scan(segment);
+            segments.addLast(segment);
+            nextSegmentId = segment.id + 1;
+        }
+        if (!paths.isEmpty())
+        {
+            log.info("Recovered {} rendered images from {} segments in {}", index.size(), paths.size(), directory);
+        }
+    }
+
+    private int scan(Segment segment)
+    {
+        MappedByteBuffer buffer = segment.buffer;
+        byte[] key = new byte[KEY_BYTES];
+        CRC32 crc = new CRC32();
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity() && buffer.getInt(position) == MAGIC)
+        {
+            int length = buffer.getInt(position + 4 + KEY_BYTES);
+            if (length < 0 || position + HEADER_BYTES + length > buffer.capacity())
+            {
+                break;
+            }
+            byte[] image = new byte[length];
+            buffer.get(position + HEADER_BYTES, image);
+            crc.reset();
+            crc.update(image);
+            if ((int) crc.getValue() != buffer.getInt(position + 8 + KEY_BYTES))
+            {
+                break;
+            }
+            buffer.get(position + 4, key);
+            String hexKey = HexFormat.of().formatHex(key);
+            index.put(hexKey, new Location(segment, position + HEADER_BYTES, length));
+            segment.keys.add(hexKey);
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static long segmentId(Path path)
+    {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX))
+        {
+            return -1;
+        }
+        try
+        {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    private static final class Segment
+    {
+        private final MappedByteBuffer buffer;
+        private final List<String> keys = new ArrayList<>();
+        // only the write stamp is used, as a version that readers validate against
+        private final StampedLock recycling = new StampedLock();
+        private long id;
+        private Path path;
+        private int writePosition;
+
+        private Segment(long id, Path path, MappedByteBuffer buffer)
+        {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    private static final class Location
+    {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+        private boolean accessed;
+
+        private Location(Segment segment, int offset, int length)
+        {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
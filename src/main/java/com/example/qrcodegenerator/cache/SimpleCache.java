@@ -2,26 +2,43 @@ package com.example.qrcodegenerator.cache;
 
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class SimpleCache<K, V>
 {
-    private final Map<K, V> cache = new HashMap<>();
+    private final Map<K, V> cache = new ConcurrentHashMap<>();
 
     public V get(K key)
     {
-        return cache.get(key);
+        return key != null ? cache.get(key) : null;
     }
 
     public void put(K key, V value)
     {
+        if (key == null)
+        {
+            return;
+        }
+        if (value == null)
+        {
+            cache.remove(key);
+            return;
+        }
         cache.put(key, value);
     }
 
     public void remove(K key)
     {
-        cache.remove(key);
+        if (key != null)
+        {
+            cache.remove(key);
+        }
     }
-}
\ No newline at end of file
+
+    public void clear()
+    {
+        cache.clear();
+    }
+}
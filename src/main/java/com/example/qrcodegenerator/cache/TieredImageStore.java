@@ -0,0 +1,181 @@
+package com.example.qrcodegenerator.cache;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.render.PngSink;
+import com.example.qrcodegenerator.render.RenderSpec;
+import com.example.qrcodegenerator.util.ContentHash;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Rendered PNGs keyed by RenderSpec.cacheKey(). The hot set is kept off-heap in OffHeapImageArena, and renders
+// are also written through to the segment files. A miss in both tiers renders again. Concurrent misses for the
+// same image share a single render. Renders are only stored once HotnessTracker has seen the image often
+// enough, so one-off images do not push out popular ones.
+@Slf4j
+@Component
+public class TieredImageStore
+{
+    private final boolean enabled;
+    private final OffHeapImageArena memory;
+    private final SegmentFileStore disk;
+    private final SingleFlight<String, byte[]> renders = new SingleFlight<>();
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder prerendered = new LongAdder();
+    private final HotnessTracker hotness;
+
+    public TieredImageStore(QRCodeProperties properties, HotnessTracker hotness)
+    {
+        this.hotness = hotness;
+        QRCodeProperties.ImageStore settings = properties.getImageStore();
+        this.enabled = settings.isEnabled();
+        this.memory = enabled
+                ? new OffHeapImageArena(settings.getMemoryMaxSize().toBytes(),
+                        (int) Math.min(settings.getMemorySlabSize().toBytes(), Integer.MAX_VALUE - 8))
+                : null;
+        this.disk = enabled && settings.isDiskEnabled() ? openDisk(settings) : null;
+    }
+
+    public byte[] get(RenderSpec spec, Function<RenderSpec, byte[]> renderer)
+    {
+        String key = ContentHash.sha256(spec.cacheKey());
+        hotness.recordRender(key, spec);
+        return get(key, spec, renderer);
+    }
+
+    // Memory hits are streamed to the sink straight from the off-heap slab, without a heap copy.
+    public void write(RenderSpec spec, Function<RenderSpec, byte[]> renderer, PngSink sink) throws IOException
+    {
+        String key = ContentHash.sha256(spec.cacheKey());
+        hotness.recordRender(key, spec);
+        if (enabled && memory.writeTo(key, sink))
+        {
+            memoryHits.increment();
+            return;
+        }
+        byte[] image = get(key, spec, renderer);
+        sink.write(image, 0, image.length);
+    }
+
+    // Makes sure a hot image is in the memory tier before it is asked for; not counted as a request.
+    public void prerender(RenderSpec spec, Function<RenderSpec, byte[]> renderer)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        String key = ContentHash.sha256(spec.cacheKey());
+        if (memory.get(key) == null)
+        {
+            renders.execute(key, () -> load(key, spec, renderer, true));
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public long getMemoryHits()
+    {
+        return memoryHits.sum();
+    }
+
+    public long getDiskHits()
+    {
+        return diskHits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    public long getPrerendered()
+    {
+        return prerendered.sum();
+    }
+
+    @PreDestroy
+    public void close()
+    {
+        if (memory != null)
+        {
+            memory.clear();
+        }
+        if (disk != null)
+        {
+            disk.close();
+        }
+    }
+
+    private byte[] get(String key, RenderSpec spec, Function<RenderSpec, byte[]> renderer)
+    {
+        if (!enabled)
+        {
+            return renders.execute(key, () -> renderer.apply(spec));
+        }
+        byte[] image = memory.get(key);
+        if (image != null)
+        {
+            memoryHits.increment();
+            return image;
+        }
+        return renders.execute(key, () -> load(key, spec, renderer, false));
+    }
+
+    private byte[] load(String key, RenderSpec spec, Function<RenderSpec, byte[]> renderer, boolean prerender)
+    {
+        // a load for the same key may have finished between the memory check and joining the flight
+        byte[] image = memory.get(key);
+        if (image != null)
+        {
+            memoryHits.increment();
+            return image;
+        }
+        if (disk != null)
+        {
+            image = disk.get(key);
+            if (image != null)
+            {
+                diskHits.increment();
+                memory.put(key, image);
+                return image;
+            }
+        }
+
+        (prerender ? prerendered : misses).increment();
+        image = renderer.apply(spec);
+        if (prerender || hotness.admitRender(key))
+        {
+            memory.put(key, image);
+            if (disk != null)
+            {
+                disk.put(key, image);
+            }
+        }
+        return image;
+    }
+
+    private static SegmentFileStore openDisk(QRCodeProperties.ImageStore settings)
+    {
+        Path directory = Path.of(settings.getDirectory());
+        int segmentBytes = (int) Math.min(settings.getSegmentSize().toBytes(), Integer.MAX_VALUE - 8);
+        try
+        {
+            return new SegmentFileStore(directory, segmentBytes, settings.getMaxSegments());
+        }
+        catch (IOException | RuntimeException e)
+        {
+            log.warn("Disk image tier disabled, could not open {}: {}", directory, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.qrcodegenerator.cache;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.model.User;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@Component
+public class UserCache
+{
+    private final Clock clock;
+    private final Duration negativeTtl;
+    private final int maxEntries;
+
+    private final Map<Long, User> usersById;
+    private final Map<String, Long> idsByEmail = new HashMap<>();
+    private final Map<Long, Instant> missingIds = new HashMap<>();
+    private final Map<String, Instant> missingEmails = new HashMap<>();
+    private long epoch;
+
+    public UserCache(Clock clock, QRCodeProperties properties)
+    {
+        this.clock = clock;
+        this.negativeTtl = properties.getUserCache().getNegativeTtl();
+        this.maxEntries = properties.getUserCache().getMaxEntries();
+        this.usersById = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, User> eldest)
+            {
+                if (size() <= maxEntries)
+                {
+                    return false;
+                }
+                idsByEmail.remove(eldest.getValue().getEmail());
+                return true;
+            }
+        };
+    }
+
+    public synchronized Optional<User> getById(Long id)
+    {
+        return Optional.ofNullable(usersById.get(id));
+    }
+
+    public synchronized Optional<User> getByEmail(String email)
+    {
+        Long id = idsByEmail.get(email);
+        return id != null ? Optional.ofNullable(usersById.get(id)) : Optional.empty();
+    }
+
+    public synchronized boolean isKnownMissingId(Long id)
+    {
+        return isLive(missingIds, id);
+    }
+
+    public synchronized boolean isKnownMissingEmail(String email)
+    {
+        return isLive(missingEmails, email);
+    }
+
+    // loaders read the epoch before querying; a write in between makes their result stale
+    public synchronized long epoch()
+    {
+        return epoch;
+    }
+
+    public synchronized void putIfCurrent(User user, long loadedAtEpoch)
+    {
+        if (loadedAtEpoch == epoch)
+        {
+            store(user);
+        }
+    }
+
+    public synchronized void putMissingIdIfCurrent(Long id, long loadedAtEpoch)
+    {
+        if (loadedAtEpoch == epoch)
+        {
+            putNegative(missingIds, id);
+        }
+    }
+
+    public synchronized void putMissingEmailIfCurrent(String email, long loadedAtEpoch)
+    {
+        if (loadedAtEpoch == epoch)
+        {
+            putNegative(missingEmails, email);
+        }
+    }
+
+    public synchronized void put(User user)
+    {
+        epoch++;
+        User previous = usersById.remove(user.getId());
+        if (previous != null)
+        {
+            idsByEmail.remove(previous.getEmail());
+        }
+        store(user);
+    }
+
+    public synchronized void evict(Long id)
+    {
+        epoch++;
+        User previous = usersById.remove(id);
+        if (previous != null)
+        {
+            idsByEmail.remove(previous.getEmail());
+        }
+        missingIds.remove(id);
+    }
+
+    public synchronized void clear()
+    {
+        epoch++;
+        usersById.clear();
+        idsByEmail.clear();
+        missingIds.clear();
+        missingEmails.clear();
+    }
+
+    private void store(User user)
+    {
+        User snapshot = new User();
+        snapshot.setId(user.getId());
+        snapshot.setName(user.getName());
+        snapshot.setEmail(user.getEmail());
+        usersById.put(snapshot.getId(), snapshot);
+        if (snapshot.getEmail() != null)
+        {
+            idsByEmail.put(snapshot.getEmail(), snapshot.getId());
+            missingEmails.remove(snapshot.getEmail());
+        }
+        missingIds.remove(snapshot.getId());
+    }
+
+    private <K> boolean isLive(Map<K, Instant> negatives, K key)
+    {
+        Instant expiresAt = negatives.get(key);
+        if (expiresAt == null)
+        {
+            return false;
+        }
+        if (clock.instant().isBefore(expiresAt))
+        {
+            return true;
+        }
+        negatives.remove(key);
+        return false;
+    }
+
+    private <K> void putNegative(Map<K, Instant> negatives, K key)
+    {
+        if (negatives.size() >= maxEntries)
+        {
+            Instant now = clock.instant();
+            negatives.values().removeIf(expiresAt -> !now.isBefore(expiresAt));
+            if (negatives.size() >= maxEntries)
+            {
+                negatives.clear();
+            }
+        }
+        negatives.put(key, clock.instant().plus(negativeTtl));
+    }
+}
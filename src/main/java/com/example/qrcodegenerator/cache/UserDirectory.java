@@ -0,0 +1,453 @@
+package com.example.qrcodegenerator.cache;
+
+import com.example.qrcodegenerator.model.User;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// In-memory search index over all users, for typeahead lookups that would otherwise be LIKE scans.
+// Names: case-insensitive prefix match on the full name and on each word, then substring match through a
+// trigram index. Emails: exact match, or case-insensitive prefix match. Not ready until load() has run.
+// Writes are not blocked while load() reads its snapshot: ids written meanwhile keep their live entry.
+@Component
+public class UserDirectory
+{
+    private static final int GRAM = 3;
+    private static final char ID_SEPARATOR = '\u0000';
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final TreeMap<String, Set<Long>> namePrefixes = new TreeMap<>();
+    private final Map<String, Set<Long>> nameTrigrams = new HashMap<>();
+    private final TreeMap<String, Long> emails = new TreeMap<>();
+    private final Set<Long> writtenDuringLoad = new HashSet<>();
+    private boolean loading;
+    private long epoch;
+    private volatile boolean ready;
+
+    public boolean isReady()
+    {
+        return ready;
+    }
+
+    public int load(Supplier<? extends Collection<User>> snapshot)
+    {
+        setLoading(true);
+        try
+        {
+            Collection<User> users = snapshot.get();
+            lock.writeLock().lock();
+            try
+            {
+                List<User> written = new ArrayList<>();
+                for (Long id : writtenDuringLoad)
+                {
+                    Entry entry = entries.get(id);
+                    if (entry != null)
+                    {
+                        written.add(entry.toUser());
+                    }
+                }
+                entries.clear();
+                namePrefixes.clear();
+                nameTrigrams.clear();
+                emails.clear();
+                for (User user : users)
+                {
+                    if (!writtenDuringLoad.contains(user.getId()))
+                    {
+                        add(user);
+                    }
+                }
+                written.forEach(this::add);
+                epoch++;
+                ready = true;
+                return entries.size();
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+        finally
+        {
+            setLoading(false);
+        }
+    }
+
+    // current epoch, to be passed to putIfCurrent() by callers that read a user from the database
+    public long epoch()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return epoch;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(User user)
+    {
+        if (user == null || user.getId() == null)
+        {
+            return;
+        }
+        lock.writeLock().lock();
+        try
+        {
+            written(user.getId());
+            removeEntry(user.getId());
+            add(user);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // skipped when any write happened since loadedAtEpoch, so a lookup racing a delete cannot bring the user back
+    public void putIfCurrent(User user, long loadedAtEpoch)
+    {
+        if (user == null || user.getId() == null)
+        {
+            return;
+        }
+        lock.writeLock().lock();
+        try
+        {
+            if (loadedAtEpoch == epoch)
+            {
+                if (loading)
+                {
+                    writtenDuringLoad.add(user.getId());
+                }
+                removeEntry(user.getId());
+                add(user);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            written(id);
+            removeEntry(id);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<User> searchByName(String query, int limit)
+    {
+        String needle = normalize(query);
+        if (needle.isEmpty() || limit <= 0)
+        {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try
+        {
+            Set<Long> ids = new LinkedHashSet<>();
+            for (Map.Entry<String, Set<Long>> prefix : namePrefixes.tailMap(needle, true).entrySet())
+            {
+                if (!prefix.getKey().startsWith(needle) || ids.size() >= limit)
+                {
+                    break;
+                }
+                addSorted(ids, prefix.getValue(), limit);
+            }
+            if (ids.size() < limit)
+            {
+                addSorted(ids, substringMatches(needle), limit);
+            }
+            return toUsers(ids);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<User> searchByEmailPrefix(String prefix, int limit)
+    {
+        String needle = normalize(prefix);
+        if (needle.isEmpty() || limit <= 0)
+        {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try
+        {
+            Set<Long> ids = new LinkedHashSet<>();
+            for (Map.Entry<String, Long> email : emails.tailMap(needle, true).entrySet())
+            {
+                if (!email.getKey().startsWith(needle) || ids.size() >= limit)
+                {
+                    break;
+                }
+                ids.add(email.getValue());
+            }
+            return toUsers(ids);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<User> findByEmail(String email)
+    {
+        if (email == null)
+        {
+            return Optional.empty();
+        }
+        String key = normalize(email) + ID_SEPARATOR;
+        lock.readLock().lock();
+        try
+        {
+            for (Long id : emails.subMap(key, key + Character.MAX_VALUE).values())
+            {
+                Entry entry = entries.get(id);
+                if (email.equals(entry.email))
+                {
+                    return Optional.of(entry.toUser());
+                }
+            }
+            return Optional.empty();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return entries.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void setLoading(boolean value)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            loading = value;
+            writtenDuringLoad.clear();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void written(Long id)
+    {
+        epoch++;
+        if (loading)
+        {
+            writtenDuringLoad.add(id);
+        }
+    }
+
+    private void add(User user)
+    {
+        Entry entry = new Entry(user.getId(), user.getName(), user.getEmail());
+        entries.put(entry.id, entry);
+        for (String key : nameKeys(entry.nameKey))
+        {
+            namePrefixes.computeIfAbsent(key, k -> new HashSet<>()).add(entry.id);
+        }
+        for (String gram : trigrams(entry.nameKey))
+        {
+            nameTrigrams.computeIfAbsent(gram, k -> new HashSet<>()).add(entry.id);
+        }
+        if (entry.email != null)
+        {
+            emails.put(emailKey(entry), entry.id);
+        }
+    }
+
+    private void removeEntry(Long id)
+    {
+        Entry entry = entries.remove(id);
+        if (entry == null)
+        {
+            return;
+        }
+        for (String key : nameKeys(entry.nameKey))
+        {
+            removePosting(namePrefixes, key, id);
+        }
+        for (String gram : trigrams(entry.nameKey))
+        {
+            removePosting(nameTrigrams, gram, id);
+        }
+        if (entry.email != null)
+        {
+            emails.remove(emailKey(entry));
+        }
+    }
+
+    private Set<Long> substringMatches(String needle)
+    {
+        if (needle.length() < GRAM)
+        {
+            // too short for the trigram index; prefix matches have usually filled the limit by now
+            Set<Long> matches = new HashSet<>();
+            for (Entry entry : entries.values())
+            {
+                if (entry.nameKey.contains(needle))
+                {
+                    matches.add(entry.id);
+                }
+            }
+            return matches;
+        }
+
+        List<Set<Long>> postings = new ArrayList<>();
+        for (String gram : trigrams(needle))
+        {
+            Set<Long> posting = nameTrigrams.get(gram);
+            if (posting == null)
+            {
+                return Set.of();
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        Set<Long> matches = new HashSet<>();
+        for (Long id : postings.get(0))
+        {
+            // trigrams can match out of order, so every candidate is confirmed against the name
+            if (entries.get(id).nameKey.contains(needle))
+            {
+                matches.add(id);
+            }
+        }
+        return matches;
+    }
+
+    private void addSorted(Set<Long> target, Set<Long> ids, int limit)
+    {
+        ids.stream()
+                .filter(id -> !target.contains(id))
+                .map(entries::get)
+                .sorted(Comparator.comparing((Entry entry) -> entry.nameKey).thenComparing(entry -> entry.id))
+                .limit(limit - target.size())
+                .forEach(entry -> target.add(entry.id));
+    }
+
+    private List<User> toUsers(Set<Long> ids)
+    {
+        List<User> users = new ArrayList<>(ids.size());
+        for (Long id : ids)
+        {
+            users.add(entries.get(id).toUser());
+        }
+        return users;
+    }
+
+    private static Set<String> nameKeys(String nameKey)
+    {
+        Set<String> keys = new HashSet<>();
+        if (nameKey.isEmpty())
+        {
+            return keys;
+        }
+        keys.add(nameKey);
+        for (String word : nameKey.split("\\s+"))
+        {
+            if (!word.isEmpty())
+            {
+                keys.add(word);
+            }
+        }
+        return keys;
+    }
+
+    private static Set<String> trigrams(String text)
+    {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++)
+        {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static <K> void removePosting(Map<K, Set<Long>> index, K key, Long id)
+    {
+        Set<Long> posting = index.get(key);
+        if (posting != null && posting.remove(id) && posting.isEmpty())
+        {
+            index.remove(key);
+        }
+    }
+
+    private static String emailKey(Entry entry)
+    {
+        return normalize(entry.email) + ID_SEPARATOR + entry.id;
+    }
+
+    private static String normalize(String text)
+    {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry
+    {
+        private final Long id;
+        private final String name;
+        private final String email;
+        private final String nameKey;
+
+        private Entry(Long id, String name, String email)
+        {
+            this.id = id;
+            this.name = name;
+            this.email = email;
+            this.nameKey = normalize(name);
+        }
+
+        private User toUser()
+        {
+            User user = new User();
+            user.setId(id);
+            user.setName(name);
+            user.setEmail(email);
+            return user;
+        }
+    }
+}
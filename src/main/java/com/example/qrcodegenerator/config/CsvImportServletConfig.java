@@ -0,0 +1,31 @@
+package com.example.qrcodegenerator.config;
+
+import jakarta.servlet.MultipartConfigElement;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+
+// Multipart limits are enforced by the container per servlet, so the CSV import route gets a second
+// DispatcherServlet over the same context with its own limit; every other upload keeps spring.servlet.multipart.*.
+@Configuration
+public class CsvImportServletConfig {
+    private static final String IMPORT_PATH = "/api/qrcodes/import";
+
+    @Bean
+    public ServletRegistrationBean<DispatcherServlet> csvImportServlet(WebApplicationContext context,
+                                                                     MultipartProperties multipart,
+                                                                     QRCodeProperties properties) {
+        MultipartConfigElement defaults = multipart.createMultipartConfig();
+        long maxUploadSize = properties.getCsvImport().getMaxUploadSize().toBytes();
+        ServletRegistrationBean<DispatcherServlet> registration =
+                new ServletRegistrationBean<>(new DispatcherServlet(context), IMPORT_PATH);
+        registration.setName("csvImportDispatcherServlet");
+        registration.setMultipartConfig(new MultipartConfigElement(defaults.getLocation(),
+                maxUploadSize < 0 ? -1 : maxUploadSize, maxUploadSize < 0 ? -1 : maxUploadSize,
+                defaults.getFileSizeThreshold()));
+        return registration;
+    }
+}
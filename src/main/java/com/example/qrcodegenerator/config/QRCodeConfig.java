@@ -1,6 +1,7 @@
 package com.example.qrcodegenerator.config;
 
-import com.google.zxing.qrcode.QRCodeWriter;
+import com.example.qrcodegenerator.render.LogoStore;
+import com.example.qrcodegenerator.render.QRCodeRenderer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -8,7 +9,7 @@ import org.springframework.context.annotation.Configuration;
 public class QRCodeConfig {
 
     @Bean
-    public QRCodeWriter qrCodeWriter() {
-        return new QRCodeWriter();
+    public QRCodeRenderer qrCodeRenderer(LogoStore logoStore) {
+        return new QRCodeRenderer(logoStore);
     }
 }
\ No newline at end of file
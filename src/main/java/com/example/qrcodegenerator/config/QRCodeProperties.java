@@ -0,0 +1,164 @@
+package com.example.qrcodegenerator.config;
+
+import com.example.qrcodegenerator.dto.RenderProfileDefinition;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "qrcode")
+public class QRCodeProperties
+{
+    private Dedup dedup = new Dedup();
+    private UserCacheSettings userCache = new UserCacheSettings();
+    private Warmup warmup = new Warmup();
+    private Map<String, RenderProfileDefinition> profiles = new LinkedHashMap<>();
+    private Export export = new Export();
+    private CsvImport csvImport = new CsvImport();
+    private Decode decode = new Decode();
+    private ImageStore imageStore = new ImageStore();
+    private Idempotency idempotency = new Idempotency();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Logos logos = new Logos();
+    private Hotness hotness = new Hotness();
+    private ReadReplica readReplica = new ReadReplica();
+    private ListImages listImages = new ListImages();
+
+    @Data
+    public static class Dedup
+    {
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class UserCacheSettings
+    {
+        private int maxEntries = 10000;
+        private Duration negativeTtl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Warmup
+    {
+        private boolean enabled = false;
+        private int iterations = 300;
+        private Duration maxDuration = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Export
+    {
+        private int fetchSize = 1000;
+        // async timeout of the export response only; other async requests keep spring.mvc.async.request-timeout
+        private Duration timeout = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class CsvImport
+    {
+        private int batchSize = 5000;
+        private int maxReportedErrors = 1000;
+        // multipart limit of the import route only, which has its own servlet; negative means unlimited
+        private DataSize maxUploadSize = DataSize.ofBytes(-1);
+    }
+
+    @Data
+    public static class Decode
+    {
+        // 0 means one thread per available processor
+        private int threads = 0;
+        private int maxImages = 10000;
+        // per image, and uncompressed bytes of all images in one request
+        private DataSize maxImageSize = DataSize.ofMegabytes(10);
+        private DataSize maxRequestSize = DataSize.ofMegabytes(256);
+        // width x height of one image, read from its header before the image is decoded
+        private long maxPixels = 4096L * 4096;
+        // images read but not yet decoded; when full the request thread decodes, which stops it reading ahead
+        private int queueCapacity = 64;
+    }
+
+    @Data
+    public static class ImageStore
+    {
+        private boolean enabled = true;
+        private DataSize memoryMaxSize = DataSize.ofMegabytes(256);
+        private DataSize memorySlabSize = DataSize.ofMegabytes(4);
+        private boolean diskEnabled = false;
+        private String directory = System.getProperty("java.io.tmpdir") + "/qrcode-image-store";
+        // disk use is at most (maxSegments + 1) * segmentSize: one compacted segment waits to be rewritten
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        private int maxSegments = 16;
+    }
+
+    @Data
+    public static class Idempotency
+    {
+        private int maxEntries = 10000;
+        private Duration ttl = Duration.ofHours(1);
+        // how long a retry waits for the first request with its key before getting a 409
+        private Duration waitTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class WriteBehind
+    {
+        private boolean enabled = false;
+        // must be on durable storage; the log is the only copy of a row until the writer has committed it
+        private String directory = System.getProperty("java.io.tmpdir") + "/qrcode-wal";
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        private int batchSize = 1000;
+        private int idBlockSize = 1000;
+        private int maxPending = 100000;
+        private Duration retryBackoff = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Logos
+    {
+        private String directory = System.getProperty("java.io.tmpdir") + "/qrcode-logos";
+        private DataSize maxUploadSize = DataSize.ofMegabytes(1);
+        private int maxDimension = 2048;
+        private int maxOriginals = 256;
+        private DataSize maxScaledSize = DataSize.ofMegabytes(64);
+        // side of the logo relative to the symbol; 0.2 covers 4% of the modules, well inside what level H repairs
+        private double relativeSize = 0.2;
+    }
+
+    @Data
+    public static class Hotness
+    {
+        private boolean enabled = true;
+        // sizes the frequency sketch; counters are halved after ten additions per expected entry
+        private int expectedEntries = 100000;
+        private Duration decayInterval = Duration.ofMinutes(10);
+        private int renderAdmissionMinFrequency = 2;
+        private int searchAdmissionMinFrequency = 2;
+        private int trackedHitters = 256;
+        private int prerenderTopN = 100;
+        private Duration prerenderInterval = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class ReadReplica
+    {
+        // read-only transactions are routed to this database once set; credentials default to spring.datasource's
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+
+    @Data
+    public static class ListImages
+    {
+        // 0 means one thread per available processor
+        private int threads = 0;
+        private int maxImages = 1000;
+    }
+}
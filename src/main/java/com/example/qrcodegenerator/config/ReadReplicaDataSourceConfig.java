@@ -0,0 +1,69 @@
+package com.example.qrcodegenerator.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+// Replaces the auto-configured pool with a primary and a replica pool behind ReadWriteRoutingDataSource when
+// qrcode.read-replica.url is set. The pools themselves are not injectable, so nothing bypasses the routing.
+@Configuration
+@ConditionalOnProperty(prefix = "qrcode.read-replica", name = "url")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean(autowireCandidate = false)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(StringUtils.hasText(properties.getName()) ? properties.getName() : "primary");
+        return dataSource;
+    }
+
+    @Bean(autowireCandidate = false)
+    public HikariDataSource replicaDataSource(DataSourceProperties primary, QRCodeProperties properties) {
+        QRCodeProperties.ReadReplica replica = properties.getReadReplica();
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(replica.getUrl())
+                .username(replica.getUsername() != null ? replica.getUsername() : primary.determineUsername())
+                .password(replica.getPassword() != null ? replica.getPassword() : primary.determinePassword())
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean(autowireCandidate = false)
+    public ReadWriteRoutingDataSource routingDataSource(DataSourceProperties primary, QRCodeProperties properties) {
+        return new ReadWriteRoutingDataSource(primaryDataSource(primary), replicaDataSource(primary, properties));
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties primary, QRCodeProperties properties) {
+        return new LazyConnectionDataSourceProxy(routingDataSource(primary, properties));
+    }
+
+    // By default a session keeps its connection until open-in-view closes it at the end of the request, which
+    // would pin every later transaction of the request to the pool that served the first one.
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter() {
+        return new ReadYourWritesFilter();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.qrcodegenerator.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Connections for read-only transactions come from the replica, everything else from the primary. Once a
+// request has run a read-write transaction, its later reads stay on the primary as well, so a client always
+// sees its own writes whatever the replication lag. Has to sit behind a LazyConnectionDataSourceProxy: the
+// read-only flag is only set after the transaction manager has asked for its connection.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    // set only while ReadYourWritesFilter handles a request; element 0 records a write
+    private static final ThreadLocal<boolean[]> REQUEST_WROTE = new ThreadLocal<>();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    static void beginRequest() {
+        REQUEST_WROTE.set(new boolean[1]);
+    }
+
+    static void endRequest() {
+        REQUEST_WROTE.remove();
+    }
+
+    @Override
+    protected Route determineCurrentLookupKey() {
+        boolean[] wrote = REQUEST_WROTE.get();
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return wrote != null && wrote[0] ? Route.PRIMARY : Route.REPLICA;
+        }
+        // reads outside a transaction (lazy loading after the service returned) use the primary but are no write
+        if (wrote != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+            wrote[0] = true;
+        }
+        return Route.PRIMARY;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.qrcodegenerator.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+// Binary converters are appended after the JSON converter, so JSON stays the default for Accept: */*
+// and clients opt in with Accept: application/cbor or application/x-jackson-smile.
+@Configuration
+public class SerializationConfig implements WebMvcConfigurer
+{
+    private final ObjectMapper objectMapper;
+
+    public SerializationConfig(ObjectMapper objectMapper)
+    {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters)
+    {
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+        converters.add(new MappingJackson2CborHttpMessageConverter(binaryMapper(new CBORFactory())));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(binaryMapper(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build())));
+    }
+
+    private ObjectMapper binaryMapper(JsonFactory factory)
+    {
+        return objectMapper.copyWith(factory)
+                .enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.qrcodegenerator.controller;
+
+import com.example.qrcodegenerator.dto.LogoResponse;
+import com.example.qrcodegenerator.render.LogoStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+@Tag(name = "Logo", description = "Logos placed in the center of QR codes")
+@RestController
+@RequestMapping("/api/logos")
+public class LogoController {
+    private final LogoStore logoStore;
+
+    public LogoController(LogoStore logoStore) {
+        this.logoStore = logoStore;
+    }
+
+    @Operation(summary = "Upload logo")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Logo stored; reference it by id in QR code requests"),
+            @ApiResponse(responseCode = "400", description = "Unsupported, empty or oversized image")
+    })
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<LogoResponse> uploadLogo(
+            @Parameter(description = "PNG, JPEG, GIF or BMP image; transparency is kept")
+            @RequestPart("file") MultipartFile file) throws IOException {
+        return ResponseEntity.status(HttpStatus.CREATED).body(logoStore.register(file.getBytes()));
+    }
+}
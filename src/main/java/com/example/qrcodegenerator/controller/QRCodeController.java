@@ -1,26 +1,45 @@
 package com.example.qrcodegenerator.controller;
 
+import com.example.qrcodegenerator.cache.IdempotencyStore;
+import com.example.qrcodegenerator.dto.DecodeReport;
+import com.example.qrcodegenerator.dto.ExportFormat;
+import com.example.qrcodegenerator.dto.ImportReport;
+import com.example.qrcodegenerator.dto.ListImageOptions;
 import com.example.qrcodegenerator.dto.QRCodeRequest;
 import com.example.qrcodegenerator.dto.QRCodeResponse;
 import com.example.qrcodegenerator.mapper.QRCodeMapper;
 import com.example.qrcodegenerator.model.QRCode;
 import com.example.qrcodegenerator.model.User;
+import com.example.qrcodegenerator.service.QRCodeDecodeService;
+import com.example.qrcodegenerator.service.QRCodeExportService;
+import com.example.qrcodegenerator.service.QRCodeImportService;
 import com.example.qrcodegenerator.service.QRCodeService;
 import com.example.qrcodegenerator.service.UserService;
+import com.example.qrcodegenerator.util.ContentHash;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -29,12 +48,24 @@ import java.util.stream.Collectors;
 @Controller
 @RequestMapping("/api/qrcodes")
 public class QRCodeController {
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final QRCodeService qrCodeService;
     private final UserService userService;
+    private final QRCodeExportService exportService;
+    private final QRCodeImportService importService;
+    private final QRCodeDecodeService decodeService;
+    private final IdempotencyStore idempotencyStore;
 
-    public QRCodeController(QRCodeService qrCodeService, UserService userService) {
+    public QRCodeController(QRCodeService qrCodeService, UserService userService,
+                            QRCodeExportService exportService, QRCodeImportService importService,
+                            QRCodeDecodeService decodeService, IdempotencyStore idempotencyStore) {
         this.qrCodeService = qrCodeService;
         this.userService = userService;
+        this.exportService = exportService;
+        this.importService = importService;
+        this.decodeService = decodeService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @GetMapping("/")
@@ -48,16 +79,16 @@ public class QRCodeController {
             @ApiResponse(responseCode = "400", description = "Invalid input parameters"),
             @ApiResponse(responseCode = "500", description = "Error generating QR code image")
     })
-    @GetMapping("/generate")
-    public ResponseEntity<byte[]> generateQRCode(
+    @GetMapping(value = "/generate", produces = MediaType.IMAGE_PNG_VALUE)
+    public void generateQRCode(
             @Parameter(description = "Text to encode in QR code")
-            @RequestParam String text) {
+            @RequestParam String text,
+            @Parameter(description = "Optional id of an uploaded logo to place in the center")
+            @RequestParam(required = false) String logo,
+            HttpServletResponse response) throws IOException {
         qrCodeService.getRequestCount();
-        byte[] qrCodeImage = qrCodeService.generateQRCode(text);
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.IMAGE_PNG);
-        headers.setContentLength(qrCodeImage.length);
-        return ResponseEntity.ok().headers(headers).body(qrCodeImage);
+        // the image is fully encoded before the sink runs, so failures still reach the exception handler
+        qrCodeService.writeQRCode(text, logo, new ResponsePngSink(response));
     }
 
     @Operation(summary = "Get request count")
@@ -80,54 +111,146 @@ public class QRCodeController {
     @Operation(summary = "Get all QR codes")
     @ApiResponse(responseCode = "200", description = "List of all QR codes retrieved successfully")
     @GetMapping
-    public ResponseEntity<List<QRCodeResponse>> getAllQRCodes() {
+    public ResponseEntity<List<QRCodeResponse>> getAllQRCodes(
+            @Valid @ParameterObject ListImageOptions images) {
         qrCodeService.getRequestCount();
-        return ResponseEntity.ok(qrCodeService.findAll().stream()
+        return ResponseEntity.ok(qrCodeService.includeImages(qrCodeService.findAll().stream()
                 .map(QRCodeMapper::toDTO)
-                .collect(Collectors.toList()));
+                .collect(Collectors.toList()), images));
+    }
+
+    @Operation(summary = "Export all QR codes with their user IDs")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Export streamed successfully"),
+            @ApiResponse(responseCode = "400", description = "Unsupported export format")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportQRCodes(
+            @Parameter(description = "Export format: csv or ndjson")
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletRequest request) {
+        qrCodeService.getRequestCount();
+        ExportFormat exportFormat = ExportFormat.from(format);
+        // a full export can outlast the default async timeout, so only this response gets the longer one
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest()
+                .setTimeout(exportService.getTimeout().toMillis());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename("qrcodes." + exportFormat.getExtension())
+                .build());
+        StreamingResponseBody body = outputStream -> exportService.export(exportFormat, outputStream);
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    @Operation(summary = "Import QR code payloads from a CSV request body")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished, see report for rejected lines"),
+            @ApiResponse(responseCode = "400", description = "CSV header is missing a data column")
+    })
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ImportReport> importQRCodes(
+            @Parameter(description = "CSV with a data column and an optional userIds column (ids separated by ;)")
+            InputStream csv,
+            @Parameter(description = "Optional user ID to associate with every imported QR code")
+            @RequestParam(required = false) Long userId) throws IOException {
+        qrCodeService.getRequestCount();
+        return ResponseEntity.ok(importService.importCsv(csv, userId));
+    }
+
+    @Operation(summary = "Import QR code payloads from an uploaded CSV file")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished, see report for rejected lines"),
+            @ApiResponse(responseCode = "400", description = "CSV header is missing a data column")
+    })
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportReport> importQRCodesFile(
+            @Parameter(description = "CSV file with a data column and an optional userIds column")
+            @RequestPart("file") MultipartFile file,
+            @Parameter(description = "Optional user ID to associate with every imported QR code")
+            @RequestParam(required = false) Long userId) throws IOException {
+        qrCodeService.getRequestCount();
+        try (InputStream csv = file.getInputStream()) {
+            return ResponseEntity.ok(importService.importCsv(csv, userId));
+        }
+    }
+
+    @Operation(summary = "Decode uploaded QR code images")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Images decoded, see per-image results for failures"),
+            @ApiResponse(responseCode = "400", description = "Invalid upload")
+    })
+    @PostMapping(value = "/decode", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<DecodeReport> decodeQRCodes(
+            @Parameter(description = "Images to decode; ZIP archives are expanded")
+            @RequestPart("files") List<MultipartFile> files,
+            @Parameter(description = "Compare decoded text with stored data, taking the ID from each file name")
+            @RequestParam(required = false, defaultValue = "false") boolean verify) throws IOException {
+        qrCodeService.getRequestCount();
+        return ResponseEntity.ok(decodeService.decode(files, verify));
+    }
+
+    @Operation(summary = "Decode QR code images from a ZIP request body")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Images decoded, see per-image results for failures"),
+            @ApiResponse(responseCode = "400", description = "Invalid archive")
+    })
+    @PostMapping(value = "/decode", consumes = "application/zip")
+    public ResponseEntity<DecodeReport> decodeQRCodesZip(
+            @Parameter(description = "ZIP archive of images to decode")
+            InputStream zip,
+            @Parameter(description = "Compare decoded text with stored data, taking the ID from each file name")
+            @RequestParam(required = false, defaultValue = "false") boolean verify) throws IOException {
+        qrCodeService.getRequestCount();
+        return ResponseEntity.ok(decodeService.decodeZip(zip, verify));
     }
 
     @Operation(summary = "Create new QR code")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "QR code created successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid input data"),
-            @ApiResponse(responseCode = "404", description = "User not found")
+            @ApiResponse(responseCode = "404", description = "User not found"),
+            @ApiResponse(responseCode = "409", description = "A request with this Idempotency-Key is still running"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key was used with a different request")
     })
     @PostMapping
     public ResponseEntity<QRCodeResponse> createQRCode(
             @Parameter(description = "QR code creation request")
             @Valid @RequestBody QRCodeRequest qrCodeRequest,
             @Parameter(description = "Optional user ID to associate with QR code")
-            @RequestParam(required = false) Long userId) {
+            @RequestParam(required = false) Long userId,
+            @Parameter(description = "Client-chosen key; retries with the same key replay the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         qrCodeService.getRequestCount();
-        QRCode qrCode = new QRCode();
-        qrCode.setData(qrCodeRequest.getData());
-
-        if (userId != null) {
-            User user = userService.getById(userId);
-            user.addQRCode(qrCode);
-            userService.save(user);
-        }
-
-        QRCode createdQRCode = qrCodeService.save(qrCode);
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(QRCodeMapper.toDTO(createdQRCode));
+        String fingerprint = ContentHash.sha256(userId + "|" + qrCodeRequest);
+        return idempotencyStore.execute(idempotencyKey, "create", fingerprint, () -> {
+            QRCode createdQRCode = qrCodeService.createQRCode(qrCodeRequest.getData(), userId);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(QRCodeMapper.toDTO(createdQRCode));
+        });
     }
 
     @Operation(summary = "Generate multiple QR codes in bulk")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "QR codes created successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid input data")
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "409", description = "A request with this Idempotency-Key is still running"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key was used with a different request")
     })
     @PostMapping("/bulk")
     public ResponseEntity<List<QRCodeResponse>> createBulkQRCodes(
             @Parameter(description = "List of QR code creation requests")
             @Valid @RequestBody List<QRCodeRequest> qrCodeRequests,
             @Parameter(description = "Optional user ID to associate with QR codes")
-            @RequestParam(required = false) Long userId) {
+            @RequestParam(required = false) Long userId,
+            @Parameter(description = "Client-chosen key; retries with the same key replay the first response")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         qrCodeService.getRequestCount();
-        List<QRCodeResponse> responses = qrCodeService.generateBulkQRCodes(qrCodeRequests, userId);
-        return ResponseEntity.status(HttpStatus.CREATED).body(responses);
+        String fingerprint = ContentHash.sha256(userId + "|" + qrCodeRequests);
+        return idempotencyStore.execute(idempotencyKey, "bulk", fingerprint, () -> {
+            List<QRCodeResponse> responses = qrCodeService.generateBulkQRCodes(qrCodeRequests, userId);
+            return ResponseEntity.status(HttpStatus.CREATED).body(responses);
+        });
     }
 
     @Operation(summary = "Get QR code by ID")
@@ -155,11 +278,11 @@ public class QRCodeController {
             @Parameter(description = "ID of QR code to update")
             @PathVariable Long id,
             @Parameter(description = "Updated QR code data")
-            @Valid @RequestBody QRCodeRequest qrCodeRequest) {
+            @Valid @RequestBody QRCodeRequest qrCodeRequest,
+            @Parameter(description = "User whose link moves to the new data when the QR code is shared")
+            @RequestParam(required = false) Long userId) {
         qrCodeService.getRequestCount();
-        QRCode existingQRCode = qrCodeService.getById(id);
-        existingQRCode.setData(qrCodeRequest.getData());
-        QRCode updatedQRCode = qrCodeService.save(existingQRCode);
+        QRCode updatedQRCode = qrCodeService.updateData(id, qrCodeRequest.getData(), userId);
         return ResponseEntity.ok(QRCodeMapper.toDTO(updatedQRCode));
     }
 
@@ -185,12 +308,46 @@ public class QRCodeController {
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<QRCodeResponse>> getQRCodesByUser(
             @Parameter(description = "ID of user to retrieve QR codes for")
-            @PathVariable Long userId) {
+            @PathVariable Long userId,
+            @Valid @ParameterObject ListImageOptions images) {
         qrCodeService.getRequestCount();
         User user = userService.getById(userId);
-        return ResponseEntity.ok(qrCodeService.findByUser(user).stream()
+        return ResponseEntity.ok(qrCodeService.includeImages(qrCodeService.findByUser(user).stream()
+                .map(QRCodeMapper::toDTO)
+                .collect(Collectors.toList()), images));
+    }
+
+    @Operation(summary = "Get QR codes by a list of IDs")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "QR codes found; unknown IDs are skipped"),
+            @ApiResponse(responseCode = "400", description = "No IDs or too many IDs")
+    })
+    @GetMapping("/batch")
+    public ResponseEntity<List<QRCodeResponse>> getQRCodesByIds(
+            @Parameter(description = "Comma-separated QR code IDs, at most 1000")
+            @RequestParam List<Long> ids,
+            @Valid @ParameterObject ListImageOptions images) {
+        qrCodeService.getRequestCount();
+        return ResponseEntity.ok(qrCodeService.includeImages(qrCodeService.findAllByIds(ids).stream()
                 .map(QRCodeMapper::toDTO)
-                .collect(Collectors.toList()));
+                .collect(Collectors.toList()), images));
+    }
+
+    @Operation(summary = "Get QR codes for several users")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "QR codes retrieved successfully, grouped by user ID"),
+            @ApiResponse(responseCode = "400", description = "No user IDs or too many user IDs")
+    })
+    @GetMapping("/users")
+    public ResponseEntity<List<QRCodeResponse>> getQRCodesByUsers(
+            @Parameter(description = "Comma-separated user IDs, at most 1000")
+            @RequestParam List<Long> userIds,
+            @Valid @ParameterObject ListImageOptions images) {
+        qrCodeService.getRequestCount();
+        List<QRCodeResponse> responses = new ArrayList<>();
+        qrCodeService.findByUserIds(userIds).forEach((userId, qrCodes) ->
+                qrCodes.forEach(qrCode -> responses.add(QRCodeMapper.toDTO(qrCode, userId))));
+        return ResponseEntity.ok(qrCodeService.includeImages(responses, images));
     }
 
     @Operation(summary = "Add QR code to user")
@@ -206,11 +363,7 @@ public class QRCodeController {
             @Parameter(description = "QR code creation request")
             @Valid @RequestBody QRCodeRequest qrCodeRequest) {
         qrCodeService.getRequestCount();
-        User user = userService.getById(userId);
-        QRCode qrCode = new QRCode();
-        qrCode.setData(qrCodeRequest.getData());
-        user.addQRCode(qrCode);
-        userService.save(user);
+        QRCode qrCode = qrCodeService.createQRCode(qrCodeRequest.getData(), userId);
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(QRCodeMapper.toDTO(qrCode));
     }
@@ -225,15 +378,16 @@ public class QRCodeController {
             @Parameter(description = "Content to search for")
             @RequestParam String content,
             @Parameter(description = "Whether to clear cache before searching")
-            @RequestParam(required = false, defaultValue = "false") boolean clearCache) {
+            @RequestParam(required = false, defaultValue = "false") boolean clearCache,
+            @Valid @ParameterObject ListImageOptions images) {
         qrCodeService.getRequestCount();
         if (clearCache) {
             qrCodeService.clearContentSearchCache(content);
         }
 
-        return ResponseEntity.ok(qrCodeService.findByDataContaining(content)
+        return ResponseEntity.ok(qrCodeService.includeImages(qrCodeService.findByDataContaining(content)
                 .stream()
                 .map(QRCodeMapper::toDTO)
-                .collect(Collectors.toList()));
+                .collect(Collectors.toList()), images));
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.example.qrcodegenerator.controller;
+
+import com.example.qrcodegenerator.dto.RenderProfileDefinition;
+import com.example.qrcodegenerator.exception.ResourceNotFoundException;
+import com.example.qrcodegenerator.render.RenderProfile;
+import com.example.qrcodegenerator.render.RenderProfileRegistry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+@Tag(name = "Render Profile", description = "Named render profiles referenced by QR code requests")
+@RestController
+@RequestMapping("/api/render-profiles")
+public class RenderProfileController {
+    private final RenderProfileRegistry profileRegistry;
+
+    public RenderProfileController(RenderProfileRegistry profileRegistry) {
+        this.profileRegistry = profileRegistry;
+    }
+
+    @Operation(summary = "Get all render profiles")
+    @ApiResponse(responseCode = "200", description = "Render profiles retrieved successfully")
+    @GetMapping
+    public ResponseEntity<Map<String, RenderProfileDefinition>> getAllProfiles() {
+        Map<String, RenderProfileDefinition> profiles = new TreeMap<>();
+        for (RenderProfile profile : profileRegistry.findAll()) {
+            profiles.put(profile.getId(), profile.getDefinition());
+        }
+        return ResponseEntity.ok(profiles);
+    }
+
+    @Operation(summary = "Get render profile by ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Render profile found"),
+            @ApiResponse(responseCode = "404", description = "Render profile not found")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<RenderProfileDefinition> getProfile(
+            @Parameter(description = "ID of render profile to retrieve")
+            @PathVariable String id) {
+        return profileRegistry.find(id)
+                .map(profile -> ResponseEntity.ok(profile.getDefinition()))
+                .orElseThrow(() -> new ResourceNotFoundException("Render profile not found with id: " + id));
+    }
+
+    @Operation(summary = "Register or replace render profile")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Render profile registered successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid render profile")
+    })
+    @PutMapping("/{id}")
+    public ResponseEntity<RenderProfileDefinition> registerProfile(
+            @Parameter(description = "ID of render profile to register")
+            @PathVariable String id,
+            @Parameter(description = "Render profile definition")
+            @Valid @RequestBody RenderProfileDefinition definition) {
+        return ResponseEntity.ok(profileRegistry.register(id, definition).getDefinition());
+    }
+
+    @Operation(summary = "Delete render profile")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Render profile deleted successfully"),
+            @ApiResponse(responseCode = "404", description = "Render profile not found")
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteProfile(
+            @Parameter(description = "ID of render profile to delete")
+            @PathVariable String id) {
+        if (!profileRegistry.remove(id)) {
+            throw new ResourceNotFoundException("Render profile not found with id: " + id);
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.qrcodegenerator.controller;
+
+import com.example.qrcodegenerator.render.PngSink;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+// Writes a finished PNG as the whole response body, with Content-Length set before the first byte.
+class ResponsePngSink implements PngSink {
+    private final HttpServletResponse response;
+
+    ResponsePngSink(HttpServletResponse response) {
+        this.response = response;
+    }
+
+    @Override
+    public void write(byte[] png, int offset, int length) throws IOException {
+        prepare(length);
+        response.getOutputStream().write(png, offset, length);
+    }
+
+    @Override
+    public void write(ByteBuffer png) throws IOException {
+        prepare(png.remaining());
+        // the channel adapter moves the bytes through a small transfer buffer, never a full-size heap copy
+        WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+        while (png.hasRemaining()) {
+            channel.write(png);
+        }
+    }
+
+    private void prepare(int length) {
+        response.setContentType(MediaType.IMAGE_PNG_VALUE);
+        response.setContentLength(length);
+    }
+}
@@ -12,6 +12,8 @@ import java.util.List;
 @RequestMapping("/api/users")
 public class UserController
 {
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     private final UserService userService;
 
     public UserController(UserService userService)
@@ -74,9 +76,18 @@ public class UserController
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<User>> searchUsersByName(@RequestParam String namePart)
+    public ResponseEntity<List<User>> searchUsers(@RequestParam(required = false) String namePart,
+                                                 @RequestParam(required = false) String email,
+                                                 @RequestParam(defaultValue = "20") int limit)
     {
-        List<User> users = userService.findByNameContaining(namePart);
+        if ((namePart == null) == (email == null))
+        {
+            return ResponseEntity.badRequest().build();
+        }
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        List<User> users = namePart != null
+                ? userService.searchByName(namePart, boundedLimit)
+                : userService.searchByEmailPrefix(email, boundedLimit);
         return ResponseEntity.ok(users);
     }
 
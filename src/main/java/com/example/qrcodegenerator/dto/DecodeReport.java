@@ -0,0 +1,38 @@
+package com.example.qrcodegenerator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Result of a batch decode")
+public class DecodeReport
+{
+    @Schema(description = "Number of images received", example = "500")
+    private int images;
+
+    @Schema(description = "Number of images decoded successfully", example = "498")
+    private int decoded;
+
+    @Schema(description = "Number of images that could not be decoded", example = "2")
+    private int failed;
+
+    @Schema(description = "Number of decoded images whose text equals the stored data", example = "497")
+    private int matched;
+
+    @Schema(description = "Number of verified images whose text differs or whose ID is unknown", example = "1")
+    private int mismatched;
+
+    @Schema(description = "Total decode time in milliseconds", example = "812")
+    private long elapsedMillis;
+
+    @Schema(description = "Per-image results in upload order")
+    private List<DecodeResult> results;
+}
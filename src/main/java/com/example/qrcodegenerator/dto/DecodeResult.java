@@ -0,0 +1,33 @@
+package com.example.qrcodegenerator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Decoding outcome for a single image")
+public class DecodeResult
+{
+    @Schema(description = "File name of the image, including the path inside a ZIP archive", example = "run-7/42.png")
+    private String source;
+
+    @Schema(description = "Whether a QR code was found and decoded", example = "true")
+    private boolean decoded;
+
+    @Schema(description = "Decoded text", example = "https://example.com")
+    private String text;
+
+    @Schema(description = "Reason decoding failed", example = "No QR code found")
+    private String error;
+
+    @Schema(description = "QR code ID parsed from the file name, when verification is requested", example = "42")
+    private Long qrCodeId;
+
+    @Schema(description = "Whether the decoded text equals the stored data; null when not verified", example = "true")
+    private Boolean matches;
+}
@@ -0,0 +1,40 @@
+package com.example.qrcodegenerator.dto;
+
+import java.util.Locale;
+
+public enum ExportFormat
+{
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension)
+    {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType()
+    {
+        return contentType;
+    }
+
+    public String getExtension()
+    {
+        return extension;
+    }
+
+    public static ExportFormat from(String value)
+    {
+        try
+        {
+            return ExportFormat.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Unsupported export format: " + value);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.qrcodegenerator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Result of a streaming CSV import")
+public class ImportReport
+{
+    @Schema(description = "Number of CSV records read, excluding the header", example = "100000")
+    private long recordsRead;
+
+    @Schema(description = "Number of QR code rows written", example = "99990")
+    private long imported;
+
+    @Schema(description = "Number of user links written", example = "99990")
+    private long linked;
+
+    @Schema(description = "Number of records rejected", example = "10")
+    private long failed;
+
+    @Schema(description = "Per-line errors (capped)")
+    private List<LineError> errors;
+
+    @Schema(description = "Total import time in milliseconds", example = "5321")
+    private long elapsedMillis;
+
+    @Schema(description = "Import throughput in records per second", example = "18794.2")
+    private double recordsPerSecond;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineError
+    {
+        @Schema(description = "Line on which the rejected record starts", example = "42")
+        private long line;
+
+        @Schema(description = "Reason the record was rejected", example = "Data cannot be blank")
+        private String message;
+    }
+}
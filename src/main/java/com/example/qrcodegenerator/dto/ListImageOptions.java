@@ -0,0 +1,41 @@
+package com.example.qrcodegenerator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Optional images for QR codes in list and search responses")
+public class ListImageOptions
+{
+    @Pattern(regexp = "image", message = "include must be image")
+    @Schema(description = "Set to image to embed each QR code as a PNG data URL in imageUrl", example = "image",
+            nullable = true)
+    private String include;
+
+    @Min(value = 1, message = "Width must be positive")
+    @Max(value = 4096, message = "Width must be at most 4096 pixels")
+    @Schema(description = "Width of the images in pixels; ignored with a profile", example = "200",
+            defaultValue = "350", nullable = true)
+    private Integer width;
+
+    @Min(value = 1, message = "Height must be positive")
+    @Max(value = 4096, message = "Height must be at most 4096 pixels")
+    @Schema(description = "Height of the images in pixels; ignored with a profile", example = "200",
+            defaultValue = "350", nullable = true)
+    private Integer height;
+
+    @Schema(description = "Render profile to draw the images with", example = "default", nullable = true)
+    private String profile;
+
+    public boolean includesImage()
+    {
+        return "image".equals(include);
+    }
+}
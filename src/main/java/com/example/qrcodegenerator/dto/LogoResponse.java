@@ -0,0 +1,25 @@
+package com.example.qrcodegenerator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Uploaded logo that QR code requests can reference")
+public class LogoResponse
+{
+    @Schema(description = "Logo id, the SHA-256 of the uploaded file",
+            example = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+    private String id;
+
+    @Schema(description = "Width of the uploaded image in pixels", example = "512")
+    private int width;
+
+    @Schema(description = "Height of the uploaded image in pixels", example = "512")
+    private int height;
+}
@@ -1,7 +1,10 @@
 package com.example.qrcodegenerator.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -49,4 +52,47 @@ public class QRCodeRequest
             defaultValue = "200"
     )
     private int height = 200;
-}
\ No newline at end of file
+
+    @Pattern(regexp = "[LMQH]", message = "Error correction must be one of L, M, Q, H")
+    @Schema(
+            description = "Error correction level",
+            example = "L",
+            defaultValue = "L",
+            nullable = true
+    )
+    private String errorCorrection;
+
+    @Min(value = 0, message = "Margin cannot be negative")
+    @Max(value = 40, message = "Margin must be at most 40 modules")
+    @Schema(
+            description = "Quiet zone around the code in modules",
+            example = "4",
+            defaultValue = "4",
+            nullable = true
+    )
+    private Integer margin;
+
+    @Pattern(regexp = "(?i)utf8|optimize", message = "Encoding mode must be utf8 or optimize")
+    @Schema(
+            description = "utf8 always uses byte mode with a UTF-8 header; optimize picks the smallest QR version",
+            example = "OPTIMIZE",
+            defaultValue = "OPTIMIZE",
+            nullable = true
+    )
+    private String encodingMode;
+
+    @Schema(
+            description = "Id of a registered render profile; when set, all render options come from the profile",
+            example = "brand-dark",
+            nullable = true
+    )
+    private String profile;
+
+    @Pattern(regexp = "[0-9a-f]{64}", message = "Logo must be the id returned by the logo upload")
+    @Schema(
+            description = "Id of an uploaded logo to place in the center; raises error correction to H",
+            example = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08",
+            nullable = true
+    )
+    private String logo;
+}
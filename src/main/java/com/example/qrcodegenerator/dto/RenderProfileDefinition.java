@@ -0,0 +1,52 @@
+package com.example.qrcodegenerator.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Server-side render profile (size, colors, margin, error correction, encoding mode, format)")
+public class RenderProfileDefinition
+{
+    @Min(value = 1, message = "Width must be positive")
+    @Max(value = 4096, message = "Width must be at most 4096 pixels")
+    @Schema(description = "Width of QR code in pixels", example = "350", defaultValue = "350")
+    private int width = 350;
+
+    @Min(value = 1, message = "Height must be positive")
+    @Max(value = 4096, message = "Height must be at most 4096 pixels")
+    @Schema(description = "Height of QR code in pixels", example = "350", defaultValue = "350")
+    private int height = 350;
+
+    @Pattern(regexp = "#?[0-9a-fA-F]{6}", message = "Color must be a 6-digit HEX value")
+    @Schema(description = "Color of QR code in HEX format", example = "#000000", defaultValue = "#000000")
+    private String color = "#000000";
+
+    @Pattern(regexp = "#?[0-9a-fA-F]{6}", message = "Background color must be a 6-digit HEX value")
+    @Schema(description = "Background color of QR code in HEX format", example = "#FFFFFF", defaultValue = "#FFFFFF")
+    private String backgroundColor = "#FFFFFF";
+
+    @Min(value = 0, message = "Margin cannot be negative")
+    @Max(value = 40, message = "Margin must be at most 40 modules")
+    @Schema(description = "Quiet zone around the code in modules", example = "4", defaultValue = "4")
+    private int margin = 4;
+
+    @Pattern(regexp = "[LMQH]", message = "Error correction must be one of L, M, Q, H")
+    @Schema(description = "Error correction level", example = "L", defaultValue = "L")
+    private String errorCorrection = "L";
+
+    @Pattern(regexp = "(?i)utf8|optimize", message = "Encoding mode must be utf8 or optimize")
+    @Schema(description = "utf8 always uses byte mode with a UTF-8 header; optimize picks the smallest QR version",
+            example = "OPTIMIZE", defaultValue = "OPTIMIZE")
+    private String encodingMode = "OPTIMIZE";
+
+    @Pattern(regexp = "(?i)png", message = "Only PNG format is supported")
+    @Schema(description = "Image format", example = "PNG", defaultValue = "PNG")
+    private String format = "PNG";
+}
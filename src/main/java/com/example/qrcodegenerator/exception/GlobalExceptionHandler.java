@@ -38,6 +38,34 @@ public class GlobalExceptionHandler
         return new ResponseEntity<>(errorDetails, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<ErrorDetails> handleIdempotencyKeyReuseException(IdempotencyKeyReuseException ex,
+                                                                           WebRequest request)
+    {
+        ErrorDetails errorDetails = new ErrorDetails(
+                new Date(),
+                HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                "Idempotency Key Reused",
+                ex.getMessage(),
+                request.getDescription(false)
+        );
+        return new ResponseEntity<>(errorDetails, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler(IdempotentRequestInProgressException.class)
+    public ResponseEntity<ErrorDetails> handleIdempotentRequestInProgressException(
+            IdempotentRequestInProgressException ex, WebRequest request)
+    {
+        ErrorDetails errorDetails = new ErrorDetails(
+                new Date(),
+                HttpStatus.CONFLICT.value(),
+                "Idempotent Request In Progress",
+                ex.getMessage(),
+                request.getDescription(false)
+        );
+        return new ResponseEntity<>(errorDetails, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorDetails> handleGlobalExceptions(Exception ex, WebRequest request)
     {
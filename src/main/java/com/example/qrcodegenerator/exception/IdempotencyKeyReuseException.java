@@ -0,0 +1,13 @@
+package com.example.qrcodegenerator.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotencyKeyReuseException extends RuntimeException
+{
+    public IdempotencyKeyReuseException(String message)
+    {
+        super(message);
+    }
+}
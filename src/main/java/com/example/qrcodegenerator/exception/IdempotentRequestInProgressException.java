@@ -0,0 +1,13 @@
+package com.example.qrcodegenerator.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IdempotentRequestInProgressException extends RuntimeException
+{
+    public IdempotentRequestInProgressException(String message)
+    {
+        super(message);
+    }
+}
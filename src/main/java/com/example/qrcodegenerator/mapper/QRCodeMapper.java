@@ -19,4 +19,17 @@ public class QRCodeMapper
                 .userId(qrCode.getUsers().isEmpty() ? null : qrCode.getUsers().iterator().next().getId())
                 .build();
     }
+
+    public static QRCodeResponse toDTO(QRCode qrCode, Long userId)
+    {
+        return QRCodeResponse.builder()
+                .id(qrCode.getId())
+                .data(qrCode.getData())
+                .imageUrl("")
+                .size("350x350")
+                .colors("#000000/#FFFFFF")
+                .createdAt(LocalDateTime.now())
+                .userId(userId)
+                .build();
+    }
 }
\ No newline at end of file
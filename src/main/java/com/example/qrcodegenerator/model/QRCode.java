@@ -1,16 +1,27 @@
 package com.example.qrcodegenerator.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "qrcodes")
+@Table(name = "qrcode", indexes = {
+        @Index(name = "ux_qrcode_content_hash", columnList = "content_hash", unique = true)
+})
 public class QRCode {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -18,6 +29,11 @@ public class QRCode {
 
     private String data;
 
+    @Column(name = "content_hash", length = 64)
+    @JsonIgnore
+    private String contentHash;
+
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "qrcodes.users")
     @ManyToMany(mappedBy = "qrCodes")
     @JsonIgnore
     private Set<User> users = new HashSet<>();
@@ -40,6 +56,14 @@ public class QRCode {
         this.data = data;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public Set<User> getUsers() {
         return users;
     }
@@ -0,0 +1,21 @@
+package com.example.qrcodegenerator.render;
+
+import java.util.Locale;
+
+public enum EncodingMode {
+    // byte mode with a UTF-8 ECI header, the historical behaviour
+    UTF8,
+    // smallest version for the payload: mixed numeric/alphanumeric/byte segments, no ECI for Latin-1 text
+    OPTIMIZE;
+
+    public static EncodingMode from(String value) {
+        if (value == null) {
+            return OPTIMIZE;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported encoding mode: " + value + ", expected utf8 or optimize");
+        }
+    }
+}
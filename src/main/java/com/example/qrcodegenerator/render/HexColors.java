@@ -0,0 +1,11 @@
+package com.example.qrcodegenerator.render;
+
+public final class HexColors {
+    private HexColors() {
+    }
+
+    public static int parse(String hexColor) {
+        String hex = hexColor.startsWith("#") ? hexColor.substring(1) : hexColor;
+        return (int) Long.parseLong(hex, 16) | 0xFF000000;
+    }
+}
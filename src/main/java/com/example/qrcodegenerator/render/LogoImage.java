@@ -0,0 +1,30 @@
+package com.example.qrcodegenerator.render;
+
+// A logo decoded and scaled for one symbol size; pixels are non-premultiplied ARGB, row by row.
+final class LogoImage {
+    private final int width;
+    private final int height;
+    private final int[] argb;
+
+    LogoImage(int width, int height, int[] argb) {
+        this.width = width;
+        this.height = height;
+        this.argb = argb;
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    int[] argb() {
+        return argb;
+    }
+
+    long sizeInBytes() {
+        return (long) argb.length * Integer.BYTES;
+    }
+}
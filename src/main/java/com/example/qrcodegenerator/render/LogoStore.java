@@ -0,0 +1,219 @@
+package com.example.qrcodegenerator.render;
+
+import com.example.qrcodegenerator.cache.SingleFlight;
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.LogoResponse;
+import com.example.qrcodegenerator.util.ContentHash;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Uploaded logos, keyed by the SHA-256 of the file. The upload is kept on disk; decoded originals and the
+// versions scaled for each symbol size are held in two bounded LRU maps, so a branded render only reads
+// ready-to-composite pixels.
+@Component
+public class LogoStore {
+    private static final Pattern LOGO_ID = Pattern.compile("[0-9a-f]{64}");
+    private static final String SUFFIX = ".img";
+
+    private final Path directory;
+    private final long maxUploadBytes;
+    private final int maxDimension;
+    private final int maxOriginals;
+    private final long maxScaledBytes;
+    private final double relativeSize;
+    private final Map<String, BufferedImage> originals = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, LogoImage> scaled = new LinkedHashMap<>(16, 0.75f, true);
+    private final SingleFlight<String, BufferedImage> originalLoads = new SingleFlight<>();
+    private final SingleFlight<String, LogoImage> scaledLoads = new SingleFlight<>();
+    private long scaledBytes;
+
+    public LogoStore(QRCodeProperties properties) {
+        QRCodeProperties.Logos settings = properties.getLogos();
+        this.directory = Path.of(settings.getDirectory());
+        this.maxUploadBytes = settings.getMaxUploadSize().toBytes();
+        this.maxDimension = settings.getMaxDimension();
+        this.maxOriginals = settings.getMaxOriginals();
+        this.maxScaledBytes = settings.getMaxScaledSize().toBytes();
+        this.relativeSize = Math.min(Math.max(settings.getRelativeSize(), 0.05), 0.3);
+    }
+
+    public LogoResponse register(byte[] upload) throws IOException {
+        if (upload == null || upload.length == 0) {
+            throw new IllegalArgumentException("Logo file is empty");
+        }
+        if (upload.length > maxUploadBytes) {
+            throw new IllegalArgumentException("Logo file must be at most " + maxUploadBytes + " bytes");
+        }
+        BufferedImage image = decode(upload);
+        String id = ContentHash.sha256(upload);
+        Path file = path(id);
+        if (!Files.exists(file)) {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, id, ".tmp");
+            try {
+                Files.write(temp, upload);
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        putOriginal(id, image);
+        return LogoResponse.builder()
+                .id(id)
+                .width(image.getWidth())
+                .height(image.getHeight())
+                .build();
+    }
+
+    public boolean exists(String id) {
+        if (id == null || !LOGO_ID.matcher(id).matches()) {
+            return false;
+        }
+        synchronized (originals) {
+            if (originals.containsKey(id)) {
+                return true;
+            }
+        }
+        return Files.exists(path(id));
+    }
+
+    // The logo scaled to fit a square of relativeSize times the symbol's side, keeping its aspect ratio.
+    LogoImage forSymbol(String id, int symbolPixels) {
+        int target = Math.max(1, (int) (symbolPixels * relativeSize));
+        String key = id + "@" + target;
+        LogoImage image = getScaled(key);
+        if (image != null) {
+            return image;
+        }
+        return scaledLoads.execute(key, () -> {
+            LogoImage loaded = getScaled(key);
+            if (loaded == null) {
+                loaded = scale(original(id), target);
+                putScaled(key, loaded);
+            }
+            return loaded;
+        });
+    }
+
+    private BufferedImage original(String id) {
+        if (id == null || !LOGO_ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("Unknown logo: " + id);
+        }
+        synchronized (originals) {
+            BufferedImage image = originals.get(id);
+            if (image != null) {
+                return image;
+            }
+        }
+        return originalLoads.execute(id, () -> {
+            try {
+                BufferedImage image = decode(Files.readAllBytes(path(id)));
+                putOriginal(id, image);
+                return image;
+            } catch (NoSuchFileException e) {
+                throw new IllegalArgumentException("Unknown logo: " + id);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read logo " + id, e);
+            }
+        });
+    }
+
+    private BufferedImage decode(byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Logo must be a PNG, JPEG, GIF or BMP image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // checked before decoding, so a small file cannot expand into a huge raster
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width > maxDimension || height > maxDimension) {
+                    throw new IllegalArgumentException("Logo must be at most " + maxDimension + "x" + maxDimension
+                            + " pixels");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static LogoImage scale(BufferedImage source, int target) {
+        double factor = Math.min((double) target / source.getWidth(), (double) target / source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * factor));
+        BufferedImage current = source;
+        // halve first when shrinking a lot; a single bilinear pass would skip most source pixels
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        current = resize(current, width, height);
+        return new LogoImage(width, height, current.getRGB(0, 0, width, height, null, 0, width));
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void putOriginal(String id, BufferedImage image) {
+        synchronized (originals) {
+            originals.put(id, image);
+            Iterator<BufferedImage> oldest = originals.values().iterator();
+            while (originals.size() > maxOriginals && oldest.hasNext()) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+
+    private LogoImage getScaled(String key) {
+        synchronized (scaled) {
+            return scaled.get(key);
+        }
+    }
+
+    private void putScaled(String key, LogoImage image) {
+        synchronized (scaled) {
+            LogoImage previous = scaled.put(key, image);
+            scaledBytes += image.sizeInBytes() - (previous != null ? previous.sizeInBytes() : 0);
+            Iterator<LogoImage> oldest = scaled.values().iterator();
+            while (scaledBytes > maxScaledBytes && scaled.size() > 1 && oldest.hasNext()) {
+                scaledBytes -= oldest.next().sizeInBytes();
+                oldest.remove();
+            }
+        }
+    }
+
+    private Path path(String id) {
+        return directory.resolve(id + SUFFIX);
+    }
+}
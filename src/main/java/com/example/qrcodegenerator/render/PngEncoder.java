@@ -0,0 +1,173 @@
+package com.example.qrcodegenerator.render;
+
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Writes a 1-bit indexed PNG straight from the module matrix, using the same scaling and centering rules as
+// ZXing's QRCodeWriter. Each module row is expanded into a packed scanline once by ScanlineKernel and fed
+// to the deflater for every pixel row it covers. With a logo the image is written as 8-bit RGB instead, and
+// the logo is blended into the rows it overlaps while they are produced, so branded codes still take a
+// single pass.
+final class PngEncoder {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504C5445;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+    private static final int DEFLATE_CHUNK = 8 * 1024;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_INDEXED = 3;
+
+    private PngEncoder() {
+    }
+
+    static void encode(byte[][] modules, int moduleWidth, int moduleHeight, int quietZone,
+                       RenderSpec spec, RenderContext context) {
+        encode(modules, moduleWidth, moduleHeight, quietZone, spec, null, context);
+    }
+
+    // logoForSymbol gets the symbol's side in pixels and returns the logo scaled for it
+    static void encode(byte[][] modules, int moduleWidth, int moduleHeight, int quietZone,
+                       RenderSpec spec, IntFunction<LogoImage> logoForSymbol, RenderContext context) {
+        int qrWidth = moduleWidth + quietZone * 2;
+        int qrHeight = moduleHeight + quietZone * 2;
+        int outputWidth = Math.max(spec.getWidth(), qrWidth);
+        int outputHeight = Math.max(spec.getHeight(), qrHeight);
+        int multiple = Math.min(outputWidth / qrWidth, outputHeight / qrHeight);
+        int leftPadding = (outputWidth - moduleWidth * multiple) / 2;
+        int topPadding = (outputHeight - moduleHeight * multiple) / 2;
+        int bottomPadding = outputHeight - topPadding - moduleHeight * multiple;
+        LogoImage logo = logoForSymbol != null ? logoForSymbol.apply(moduleWidth * multiple) : null;
+
+        RenderBuffer out = context.output();
+        CRC32 crc = context.crc();
+        out.reset();
+        out.write(SIGNATURE);
+
+        int chunk = beginChunk(out, IHDR);
+        out.writeInt(outputWidth);
+        out.writeInt(outputHeight);
+        out.write(logo != null ? 8 : 1);
+        out.write(logo != null ? COLOR_TYPE_RGB : COLOR_TYPE_INDEXED);
+        out.write(0);
+        out.write(0);
+        out.write(0);
+        endChunk(out, chunk, crc);
+
+        if (logo == null) {
+            chunk = beginChunk(out, PLTE);
+            writeRgb(out, spec.getOffColor());
+            writeRgb(out, spec.getOnColor());
+            endChunk(out, chunk, crc);
+        }
+
+        chunk = beginChunk(out, IDAT);
+        Deflater deflater = context.deflater();
+        deflater.reset();
+        if (logo == null) {
+            int scanlineLength = ((outputWidth + 7) >>> 3) + 1;
+            byte[] blank = context.blankScanline(scanlineLength);
+            byte[] scanline = context.scanline(scanlineLength);
+            for (int y = 0; y < topPadding; y++) {
+                deflate(deflater, blank, scanlineLength, out);
+            }
+            for (int moduleY = 0; moduleY < moduleHeight; moduleY++) {
+                ScanlineKernel.expandBits(modules[moduleY], moduleWidth, multiple, leftPadding, scanline,
+                        scanlineLength);
+                for (int repeat = 0; repeat < multiple; repeat++) {
+                    deflate(deflater, scanline, scanlineLength, out);
+                }
+            }
+            for (int y = 0; y < bottomPadding; y++) {
+                deflate(deflater, blank, scanlineLength, out);
+            }
+        } else {
+            int scanlineLength = outputWidth * 3 + 1;
+            byte[] background = context.backgroundScanline(scanlineLength);
+            byte[] scanline = context.scanline(scanlineLength);
+            byte[] overlay = context.overlayScanline(scanlineLength);
+            background[0] = 0;
+            ScanlineKernel.fillRgb(background, 0, outputWidth, spec.getOffColor());
+            int logoLeft = leftPadding + (moduleWidth * multiple - logo.width()) / 2;
+            int logoTop = topPadding + (moduleHeight * multiple - logo.height()) / 2;
+
+            for (int y = 0; y < topPadding; y++) {
+                deflate(deflater, background, scanlineLength, out);
+            }
+            for (int moduleY = 0; moduleY < moduleHeight; moduleY++) {
+                ScanlineKernel.expandRgb(modules[moduleY], moduleWidth, multiple, leftPadding, spec.getOnColor(),
+                        background, scanline, scanlineLength);
+                for (int repeat = 0; repeat < multiple; repeat++) {
+                    int logoRow = topPadding + moduleY * multiple + repeat - logoTop;
+                    if (logoRow >= 0 && logoRow < logo.height()) {
+                        System.arraycopy(scanline, 0, overlay, 0, scanlineLength);
+                        blendLogoRow(logo, logoRow, logoLeft, spec.getOffColor(), overlay);
+                        deflate(deflater, overlay, scanlineLength, out);
+                    } else {
+                        deflate(deflater, scanline, scanlineLength, out);
+                    }
+                }
+            }
+            for (int y = 0; y < bottomPadding; y++) {
+                deflate(deflater, background, scanlineLength, out);
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            out.ensureSpace(DEFLATE_CHUNK);
+            out.advance(deflater.deflate(out.array(), out.size(), out.remaining()));
+        }
+        endChunk(out, chunk, crc);
+
+        chunk = beginChunk(out, IEND);
+        endChunk(out, chunk, crc);
+    }
+
+    // Modules under the logo are cleared: logo pixels are blended over the background color, not the modules.
+    private static void blendLogoRow(LogoImage logo, int row, int left, int background, byte[] scanline) {
+        int[] argb = logo.argb();
+        int offset = row * logo.width();
+        int position = 1 + left * 3;
+        for (int i = 0; i < logo.width(); i++) {
+            int pixel = argb[offset + i];
+            int alpha = pixel >>> 24;
+            scanline[position++] = (byte) blend(pixel >>> 16, background >>> 16, alpha);
+            scanline[position++] = (byte) blend(pixel >>> 8, background >>> 8, alpha);
+            scanline[position++] = (byte) blend(pixel, background, alpha);
+        }
+    }
+
+    private static int blend(int foreground, int background, int alpha) {
+        return ((foreground & 0xFF) * alpha + (background & 0xFF) * (255 - alpha) + 127) / 255;
+    }
+
+    private static void deflate(Deflater deflater, byte[] input, int length, RenderBuffer out) {
+        deflater.setInput(input, 0, length);
+        while (!deflater.needsInput()) {
+            out.ensureSpace(DEFLATE_CHUNK);
+            out.advance(deflater.deflate(out.array(), out.size(), out.remaining()));
+        }
+    }
+
+    private static void writeRgb(RenderBuffer out, int argb) {
+        out.write(argb >>> 16);
+        out.write(argb >>> 8);
+        out.write(argb);
+    }
+
+    private static int beginChunk(RenderBuffer out, int type) {
+        int start = out.size();
+        out.writeInt(0);
+        out.writeInt(type);
+        return start;
+    }
+
+    private static void endChunk(RenderBuffer out, int start, CRC32 crc) {
+        int length = out.size() - start - 8;
+        out.putInt(start, length);
+        crc.reset();
+        crc.update(out.array(), start + 4, length + 4);
+        out.writeInt((int) crc.getValue());
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.qrcodegenerator.render;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Receives a finished PNG. The buffer belongs to the caller and is only valid during the call.
+@FunctionalInterface
+public interface PngSink {
+    void write(byte[] png, int offset, int length) throws IOException;
+
+    // Called with off-heap image bytes; sinks that can write a ByteBuffer directly should override this.
+    default void write(ByteBuffer png) throws IOException {
+        byte[] copy = new byte[png.remaining()];
+        png.get(copy);
+        write(copy, 0, copy.length);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.qrcodegenerator.render;
+
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class QRCodeRenderer {
+    private static final byte[] DATA_URL_PREFIX = "data:image/png;base64,".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    private final ThreadLocal<RenderContext> contexts = ThreadLocal.withInitial(RenderContext::new);
+    private final LogoStore logos;
+
+    public QRCodeRenderer() {
+        this(null);
+    }
+
+    public QRCodeRenderer(LogoStore logos) {
+        this.logos = logos;
+    }
+
+    public byte[] renderPng(RenderSpec spec) {
+        RenderContext context = contexts.get();
+        try {
+            encode(spec, context);
+            return context.output().toByteArray();
+        } finally {
+            context.release();
+        }
+    }
+
+    // Hands the encoder's own buffer to the sink, so no copy of the image is made before it is written out.
+    public void renderPng(RenderSpec spec, PngSink sink) throws IOException {
+        RenderContext context = contexts.get();
+        try {
+            encode(spec, context);
+            sink.write(context.output().array(), 0, context.output().size());
+        } finally {
+            context.release();
+        }
+    }
+
+    public String renderDataUrl(RenderSpec spec) {
+        RenderContext context = contexts.get();
+        try {
+            encode(spec, context);
+            return toDataUrl(context.output().array(), context.output().size(), context);
+        } finally {
+            context.release();
+        }
+    }
+
+    public String toDataUrl(byte[] png) {
+        RenderContext context = contexts.get();
+        try {
+            return toDataUrl(png, png.length, context);
+        } finally {
+            context.release();
+        }
+    }
+
+    private void encode(RenderSpec spec, RenderContext context) {
+        if (spec.getWidth() <= 0 || spec.getHeight() <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive values");
+        }
+        Map<EncodeHintType, Object> hints = context.hints();
+        if (spec.getEncodingMode() == EncodingMode.OPTIMIZE) {
+            hints.put(EncodeHintType.QR_COMPACT, Boolean.TRUE);
+            // Latin-1 payloads use the QR default charset and need no ECI header
+            if (!isLatin1(spec.getData())) {
+                hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+            }
+        } else {
+            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        }
+
+        String logo = spec.getLogo();
+        if (logo != null && logos == null) {
+            throw new IllegalArgumentException("Unknown logo: " + logo);
+        }
+        // the logo hides the center modules, so it needs the strongest error correction
+        ErrorCorrectionLevel errorCorrection = logo != null ? ErrorCorrectionLevel.H : spec.getErrorCorrection();
+
+        ByteMatrix matrix;
+        try {
+            matrix = Encoder.encode(spec.getData(), errorCorrection, hints).getMatrix();
+        } catch (WriterException e) {
+            throw new RuntimeException("Failed to generate QR code image: " + e.getMessage());
+        }
+        PngEncoder.encode(matrix.getArray(), matrix.getWidth(), matrix.getHeight(), spec.getMargin(), spec,
+                logo != null ? symbolPixels -> logos.forSymbol(logo, symbolPixels) : null, context);
+    }
+
+    private static boolean isLatin1(String data) {
+        for (int i = 0; i < data.length(); i++) {
+            if (data.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String toDataUrl(byte[] source, int length, RenderContext context) {
+        byte[] text = context.text(DATA_URL_PREFIX.length + 4 * ((length + 2) / 3));
+        System.arraycopy(DATA_URL_PREFIX, 0, text, 0, DATA_URL_PREFIX.length);
+
+        int position = DATA_URL_PREFIX.length;
+        int index = 0;
+        for (; index + 3 <= length; index += 3) {
+            int bits = (source[index] & 0xFF) << 16 | (source[index + 1] & 0xFF) << 8 | (source[index + 2] & 0xFF);
+            text[position++] = BASE64_ALPHABET[bits >>> 18];
+            text[position++] = BASE64_ALPHABET[(bits >>> 12) & 0x3F];
+            text[position++] = BASE64_ALPHABET[(bits >>> 6) & 0x3F];
+            text[position++] = BASE64_ALPHABET[bits & 0x3F];
+        }
+        int tail = length - index;
+        if (tail > 0) {
+            int bits = (source[index] & 0xFF) << 16 | (tail == 2 ? (source[index + 1] & 0xFF) << 8 : 0);
+            text[position++] = BASE64_ALPHABET[bits >>> 18];
+            text[position++] = BASE64_ALPHABET[(bits >>> 12) & 0x3F];
+            text[position++] = tail == 2 ? BASE64_ALPHABET[(bits >>> 6) & 0x3F] : (byte) '=';
+            text[position++] = '=';
+        }
+        return new String(text, 0, position, StandardCharsets.ISO_8859_1);
+    }
+}
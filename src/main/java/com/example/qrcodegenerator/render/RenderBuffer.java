@@ -0,0 +1,73 @@
+package com.example.qrcodegenerator.render;
+
+import java.util.Arrays;
+
+final class RenderBuffer {
+    private byte[] buffer;
+    private int count;
+
+    RenderBuffer(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    void reset() {
+        count = 0;
+    }
+
+    int size() {
+        return count;
+    }
+
+    byte[] array() {
+        return buffer;
+    }
+
+    int remaining() {
+        return buffer.length - count;
+    }
+
+    void ensureSpace(int length) {
+        if (buffer.length - count < length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+        }
+    }
+
+    void advance(int length) {
+        count += length;
+    }
+
+    void write(int value) {
+        ensureSpace(1);
+        buffer[count++] = (byte) value;
+    }
+
+    void write(byte[] bytes) {
+        ensureSpace(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    void writeInt(int value) {
+        ensureSpace(4);
+        putInt(count, value);
+        count += 4;
+    }
+
+    void putInt(int position, int value) {
+        buffer[position] = (byte) (value >>> 24);
+        buffer[position + 1] = (byte) (value >>> 16);
+        buffer[position + 2] = (byte) (value >>> 8);
+        buffer[position + 3] = (byte) value;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    void trimTo(int maxRetained) {
+        if (buffer.length > maxRetained) {
+            buffer = new byte[maxRetained];
+        }
+        count = 0;
+    }
+}
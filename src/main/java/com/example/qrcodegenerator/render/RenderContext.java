@@ -0,0 +1,84 @@
+package com.example.qrcodegenerator.render;
+
+import com.google.zxing.EncodeHintType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Per-thread scratch state for one render; everything here is reused across renders on the same thread.
+final class RenderContext {
+    private static final int INITIAL_OUTPUT_BYTES = 16 * 1024;
+    private static final int MAX_RETAINED_BYTES = 1024 * 1024;
+
+    private final RenderBuffer output = new RenderBuffer(INITIAL_OUTPUT_BYTES);
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final CRC32 crc = new CRC32();
+    private final Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+    private byte[] scanline = new byte[0];
+    private byte[] blankScanline = new byte[0];
+    private byte[] backgroundScanline = new byte[0];
+    private byte[] overlayScanline = new byte[0];
+    private byte[] text = new byte[0];
+
+    RenderBuffer output() {
+        return output;
+    }
+
+    Deflater deflater() {
+        return deflater;
+    }
+
+    CRC32 crc() {
+        return crc;
+    }
+
+    Map<EncodeHintType, Object> hints() {
+        hints.clear();
+        return hints;
+    }
+
+    byte[] scanline(int length) {
+        if (scanline.length < length) {
+            scanline = new byte[length];
+        }
+        return scanline;
+    }
+
+    byte[] blankScanline(int length) {
+        if (blankScanline.length < length) {
+            blankScanline = new byte[length];
+        }
+        return blankScanline;
+    }
+
+    // RGB rows; unlike blankScanline these are overwritten on every render
+    byte[] backgroundScanline(int length) {
+        if (backgroundScanline.length < length) {
+            backgroundScanline = new byte[length];
+        }
+        return backgroundScanline;
+    }
+
+    byte[] overlayScanline(int length) {
+        if (overlayScanline.length < length) {
+            overlayScanline = new byte[length];
+        }
+        return overlayScanline;
+    }
+
+    byte[] text(int length) {
+        if (text.length < length) {
+            text = new byte[length];
+        }
+        return text;
+    }
+
+    void release() {
+        output.trimTo(MAX_RETAINED_BYTES);
+        if (text.length > MAX_RETAINED_BYTES) {
+            text = new byte[0];
+        }
+    }
+}
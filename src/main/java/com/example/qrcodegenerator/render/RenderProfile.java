@@ -0,0 +1,17 @@
+package com.example.qrcodegenerator.render;
+
+import com.example.qrcodegenerator.dto.RenderProfileDefinition;
+import lombok.Value;
+
+@Value
+public class RenderProfile {
+    String id;
+    RenderProfileDefinition definition;
+    RenderSpec template;
+    String size;
+    String colors;
+
+    public RenderSpec specFor(String data) {
+        return template.withData(data);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.qrcodegenerator.render;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.RenderProfileDefinition;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Component
+public class RenderProfileRegistry {
+    private static final Pattern PROFILE_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final Validator validator;
+    private final Map<String, RenderProfile> profiles = new ConcurrentHashMap<>();
+
+    public RenderProfileRegistry(Validator validator, QRCodeProperties properties) {
+        this.validator = validator;
+        properties.getProfiles().forEach(this::register);
+    }
+
+    public RenderProfile register(String id, RenderProfileDefinition definition) {
+        RenderProfile profile = compile(id, definition);
+        profiles.put(id, profile);
+        return profile;
+    }
+
+    public Optional<RenderProfile> find(String id) {
+        return Optional.ofNullable(profiles.get(id));
+    }
+
+    public RenderProfile get(String id) {
+        RenderProfile profile = profiles.get(id);
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown render profile: " + id);
+        }
+        return profile;
+    }
+
+    public Collection<RenderProfile> findAll() {
+        return profiles.values();
+    }
+
+    public boolean remove(String id) {
+        return profiles.remove(id) != null;
+    }
+
+    private RenderProfile compile(String id, RenderProfileDefinition definition) {
+        if (id == null || !PROFILE_ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("Render profile id must match " + PROFILE_ID.pattern());
+        }
+        Set<ConstraintViolation<RenderProfileDefinition>> violations = validator.validate(definition);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Invalid render profile '" + id + "': " + violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+
+        RenderProfileDefinition copy = new RenderProfileDefinition(definition.getWidth(), definition.getHeight(),
+                definition.getColor(), definition.getBackgroundColor(), definition.getMargin(),
+                definition.getErrorCorrection(), definition.getEncodingMode(), definition.getFormat());
+        RenderSpec template = RenderSpec.builder()
+                .width(copy.getWidth())
+                .height(copy.getHeight())
+                .onColor(HexColors.parse(copy.getColor()))
+                .offColor(HexColors.parse(copy.getBackgroundColor()))
+                .margin(copy.getMargin())
+                .errorCorrection(ErrorCorrectionLevel.valueOf(copy.getErrorCorrection()))
+                .encodingMode(EncodingMode.from(copy.getEncodingMode()))
+                .profile(id)
+                .build();
+        return new RenderProfile(id, copy, template,
+                copy.getWidth() + "x" + copy.getHeight(),
+                copy.getColor() + "/" + copy.getBackgroundColor());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.qrcodegenerator.render;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+
+@Value
+@Builder(toBuilder = true)
+public class RenderSpec {
+    @With
+    String data;
+    int width;
+    int height;
+    int onColor;
+    int offColor;
+    @Builder.Default
+    int margin = 4;
+    @Builder.Default
+    ErrorCorrectionLevel errorCorrection = ErrorCorrectionLevel.L;
+    @Builder.Default
+    EncodingMode encodingMode = EncodingMode.OPTIMIZE;
+    String profile;
+    // id of an uploaded logo; rendering with one always uses error correction level H
+    String logo;
+
+    // Identifies the rendered bytes; the profile name is left out since it only selects the other fields.
+    public String cacheKey() {
+        return width + "x" + height + "|" + Integer.toHexString(onColor) + "/" + Integer.toHexString(offColor)
+                + "|" + margin + "|" + errorCorrection + "|" + encodingMode + (logo != null ? "+logo:" + logo : "")
+                + "|" + data;
+    }
+}
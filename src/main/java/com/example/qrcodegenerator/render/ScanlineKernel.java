@@ -0,0 +1,100 @@
+package com.example.qrcodegenerator.render;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Expands one module row into a PNG scanline; scanline[0] is the filter byte (0 = none) and pixels follow.
+// Equal modules are merged into runs first. 1-bit rows are assembled 64 pixels at a time in a long and stored
+// with a single big-endian write, which puts the first pixel in the most significant bit as PNG expects. RGB
+// runs are filled by copying the filled part onto itself, so wide modules become a few block copies.
+final class ScanlineKernel {
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private ScanlineKernel() {
+    }
+
+    static void expandBits(byte[] moduleRow, int moduleWidth, int multiple, int leftPadding,
+                           byte[] scanline, int scanlineLength) {
+        scanline[0] = 0;
+        int position = 1;
+        long word = 0;
+        int filled = 0;
+        boolean dark = false;
+        int run = leftPadding;
+        int moduleX = 0;
+        while (true) {
+            while (run > 0) {
+                int take = Math.min(run, 64 - filled);
+                if (dark) {
+                    word |= (-1L >>> filled) & (-1L << (64 - filled - take));
+                }
+                filled += take;
+                run -= take;
+                if (filled == 64) {
+                    LONGS.set(scanline, position, word);
+                    position += 8;
+                    word = 0;
+                    filled = 0;
+                }
+            }
+            if (moduleX == moduleWidth) {
+                break;
+            }
+            byte value = moduleRow[moduleX];
+            int end = moduleX + 1;
+            while (end < moduleWidth && moduleRow[end] == value) {
+                end++;
+            }
+            dark = value == 1;
+            run = (end - moduleX) * multiple;
+            moduleX = end;
+        }
+
+        if (filled > 0) {
+            if (scanlineLength - position >= 8) {
+                LONGS.set(scanline, position, word);
+                position += 8;
+            } else {
+                for (int shift = 56; position < scanlineLength; shift -= 8) {
+                    scanline[position++] = (byte) (word >>> shift);
+                }
+            }
+        }
+        Arrays.fill(scanline, position, scanlineLength, (byte) 0);
+    }
+
+    static void expandRgb(byte[] moduleRow, int moduleWidth, int multiple, int leftPadding, int onColor,
+                          byte[] background, byte[] scanline, int scanlineLength) {
+        System.arraycopy(background, 0, scanline, 0, scanlineLength);
+        int moduleX = 0;
+        while (moduleX < moduleWidth) {
+            if (moduleRow[moduleX] != 1) {
+                moduleX++;
+                continue;
+            }
+            int end = moduleX + 1;
+            while (end < moduleWidth && moduleRow[end] == 1) {
+                end++;
+            }
+            fillRgb(scanline, leftPadding + moduleX * multiple, leftPadding + end * multiple, onColor);
+            moduleX = end;
+        }
+    }
+
+    // pixels from..to of an RGB scanline, skipping the filter byte
+    static void fillRgb(byte[] scanline, int from, int to, int rgb) {
+        if (from >= to) {
+            return;
+        }
+        int start = 1 + from * 3;
+        int length = (to - from) * 3;
+        scanline[start] = (byte) (rgb >>> 16);
+        scanline[start + 1] = (byte) (rgb >>> 8);
+        scanline[start + 2] = (byte) rgb;
+        for (int filled = 3; filled < length; filled *= 2) {
+            System.arraycopy(scanline, start, scanline, start + filled, Math.min(filled, length - filled));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.qrcodegenerator.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Reserves blocks of ids from the qrcode identity sequence so rows can be inserted with explicit ids in
+// JDBC batches and linked in user_qr_codes without reading generated keys back.
+@Component
+public class QRCodeIdAllocator
+{
+    private static final String ALLOCATE_SQL =
+            "select nextval(pg_get_serial_sequence('qrcode', 'id')) from generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public QRCodeIdAllocator(JdbcTemplate jdbcTemplate)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long[] allocate(int count)
+    {
+        long[] ids = new long[count];
+        int[] index = {0};
+        jdbcTemplate.query(ALLOCATE_SQL, resultSet -> {
+            ids[index[0]++] = resultSet.getLong(1);
+        }, count);
+        if (index[0] != count)
+        {
+            throw new IllegalStateException("Allocated " + index[0] + " ids instead of " + count);
+        }
+        return ids;
+    }
+}
@@ -1,11 +1,35 @@
 package com.example.qrcodegenerator.repository;
 
 import com.example.qrcodegenerator.model.QRCode;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface QRCodeRepository extends JpaRepository<QRCode, Long>
 {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<QRCode> findByDataContaining(String data);
-}
\ No newline at end of file
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<QRCode> findByUsersId(Long userId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<QRCode> findByContentHash(String contentHash);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<QRCode> findByContentHashIn(Collection<String> contentHashes);
+
+    @Query("select distinct q from QRCode q left join fetch q.users where q.id in :ids order by q.id")
+    List<QRCode> findAllWithUsersByIdIn(@Param("ids") Collection<Long> ids);
+
+    // one row per (user id, QR code) pair, so codes shared by several users appear once per user
+    @Query("select u.id, q from User u join u.qrCodes q where u.id in :userIds order by u.id, q.id")
+    List<Object[]> findPairsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+}
@@ -1,14 +1,21 @@
 package com.example.qrcodegenerator.repository;
 
 import com.example.qrcodegenerator.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long>
 {
-    List<User> findByNameContaining(String namePart);
+    List<User> findByNameContainingIgnoreCase(String namePart, Pageable pageable);
 
+    List<User> findByEmailStartingWithIgnoreCase(String prefix, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByEmail(String email);
 }
\ No newline at end of file
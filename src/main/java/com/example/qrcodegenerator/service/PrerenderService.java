@@ -0,0 +1,74 @@
+package com.example.qrcodegenerator.service;
+
+import com.example.qrcodegenerator.cache.HotnessTracker;
+import com.example.qrcodegenerator.cache.TieredImageStore;
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.render.QRCodeRenderer;
+import com.example.qrcodegenerator.render.RenderSpec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Periodically renders the hottest images into the memory tier of the image store, so they stay served from
+// memory even after the arena has recycled the slab they were in.
+@Slf4j
+@Service
+public class PrerenderService {
+    private final TieredImageStore imageStore;
+    private final HotnessTracker hotness;
+    private final QRCodeRenderer renderer;
+    private final int topN;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    public PrerenderService(TieredImageStore imageStore, HotnessTracker hotness, QRCodeRenderer renderer,
+                            QRCodeProperties properties) {
+        this.imageStore = imageStore;
+        this.hotness = hotness;
+        this.renderer = renderer;
+        this.topN = properties.getHotness().getPrerenderTopN();
+        this.interval = properties.getHotness().getPrerenderInterval();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!imageStore.isEnabled() || !hotness.isEnabled() || topN <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "qrcode-prerender");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::prerenderHottest, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    void prerenderHottest() {
+        for (HotnessTracker.HeavyHitter<RenderSpec> hitter : hotness.topRenders(topN)) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                imageStore.prerender(hitter.value(), renderer::renderPng);
+            } catch (RuntimeException e) {
+                // e.g. a logo that has since been removed; the next image is still worth rendering
+                log.warn("Could not pre-render {}: {}", hitter.key(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.qrcodegenerator.service;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.DecodeReport;
+import com.example.qrcodegenerator.dto.DecodeResult;
+import com.example.qrcodegenerator.model.QRCode;
+import com.example.qrcodegenerator.repository.QRCodeRepository;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+// Images are decoded on a fixed pool while the upload is still being read, so parsing a large ZIP
+// overlaps with decoding. The pool's queue is bounded and every image is read with a size limit, so an upload
+// (or a ZIP that inflates far beyond its size) cannot pile unbounded bytes onto the heap; the pixel count is
+// checked from the image header before decoding. Stored data for verification is fetched with a single IN query.
+@Slf4j
+@Service
+public class QRCodeDecodeService {
+    private static final Pattern TRAILING_ID = Pattern.compile("(\\d{1,18})$");
+    private static final Map<DecodeHintType, Object> HINTS = hints(false);
+    private static final Map<DecodeHintType, Object> TRY_HARDER_HINTS = hints(true);
+
+    private final QRCodeRepository qrCodeRepository;
+    private final ExecutorService executor;
+    private final int maxImages;
+    private final long maxImageBytes;
+    private final long maxRequestBytes;
+    private final long maxPixels;
+
+    public QRCodeDecodeService(QRCodeRepository qrCodeRepository, QRCodeProperties properties) {
+        this.qrCodeRepository = qrCodeRepository;
+        int threads = properties.getDecode().getThreads() > 0
+                ? properties.getDecode().getThreads()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(properties.getDecode().getQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "qrcode-decode-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.maxImages = properties.getDecode().getMaxImages();
+        this.maxImageBytes = properties.getDecode().getMaxImageSize().toBytes();
+        this.maxRequestBytes = properties.getDecode().getMaxRequestSize().toBytes();
+        this.maxPixels = properties.getDecode().getMaxPixels();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public DecodeReport decode(List<MultipartFile> files, boolean verify) throws IOException {
+        long started = System.nanoTime();
+        List<Future<DecodeResult>> pending = new ArrayList<>();
+        long[] requestBytes = {0};
+        try {
+            for (MultipartFile file : files) {
+                try (InputStream in = file.getInputStream()) {
+                    if (isZip(file.getOriginalFilename(), file.getContentType())) {
+                        submitZipEntries(in, pending, requestBytes);
+                    } else {
+                        submit(file.getOriginalFilename(), read(file.getOriginalFilename(), in, requestBytes),
+                                pending);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            pending.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return collect(pending, verify, started);
+    }
+
+    public DecodeReport decodeZip(InputStream zip, boolean verify) throws IOException {
+        long started = System.nanoTime();
+        List<Future<DecodeResult>> pending = new ArrayList<>();
+        try {
+            submitZipEntries(zip, pending, new long[1]);
+        } catch (IOException | RuntimeException e) {
+            pending.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return collect(pending, verify, started);
+    }
+
+    private void submitZipEntries(InputStream in, List<Future<DecodeResult>> pending, long[] requestBytes)
+            throws IOException {
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (!entry.isDirectory() && !isMetadataEntry(entry.getName())) {
+                submit(entry.getName(), read(entry.getName(), zip, requestBytes), pending);
+            }
+        }
+    }
+
+    // Reads one image, stopping as soon as it passes the per-image or per-request limit. The declared size of a
+    // ZIP entry is not trusted; only bytes actually inflated are counted.
+    private byte[] read(String source, InputStream in, long[] requestBytes) throws IOException {
+        long limit = Math.min(maxImageBytes, maxRequestBytes - requestBytes[0]);
+        byte[] bytes = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, limit + 1));
+        if (bytes.length > maxImageBytes) {
+            throw new IllegalArgumentException(source + " is larger than the limit of " + maxImageBytes + " bytes");
+        }
+        if (bytes.length > limit) {
+            throw new IllegalArgumentException("Images in one request exceed the limit of " + maxRequestBytes
+                    + " bytes");
+        }
+        requestBytes[0] += bytes.length;
+        return bytes;
+    }
+
+    private void submit(String source, byte[] bytes, List<Future<DecodeResult>> pending) {
+        if (pending.size() >= maxImages) {
+            throw new IllegalArgumentException("Too many images in one request, limit is " + maxImages);
+        }
+        pending.add(executor.submit(() -> decodeImage(source, bytes)));
+    }
+
+    private DecodeReport collect(List<Future<DecodeResult>> pending, boolean verify, long started) {
+        List<DecodeResult> results = new ArrayList<>(pending.size());
+        try {
+            for (Future<DecodeResult> future : pending) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Decoding was interrupted", e);
+        } catch (ExecutionException e) {
+            pending.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Failed to decode images: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        if (verify) {
+            verify(results);
+        }
+
+        int decoded = 0;
+        int matched = 0;
+        int mismatched = 0;
+        for (DecodeResult result : results) {
+            if (result.isDecoded()) {
+                decoded++;
+            }
+            if (Boolean.TRUE.equals(result.getMatches())) {
+                matched++;
+            } else if (Boolean.FALSE.equals(result.getMatches())) {
+                mismatched++;
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Decoded {} of {} images in {} ms", decoded, results.size(), elapsedMillis);
+        return DecodeReport.builder()
+                .images(results.size())
+                .decoded(decoded)
+                .failed(results.size() - decoded)
+                .matched(matched)
+                .mismatched(mismatched)
+                .elapsedMillis(elapsedMillis)
+                .results(results)
+                .build();
+    }
+
+    private void verify(List<DecodeResult> results) {
+        Set<Long> ids = new HashSet<>();
+        for (DecodeResult result : results) {
+            result.setQrCodeId(parseId(result.getSource()));
+            if (result.getQrCodeId() != null) {
+                ids.add(result.getQrCodeId());
+            }
+        }
+        Map<Long, String> stored = qrCodeRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(QRCode::getId, QRCode::getData));
+        for (DecodeResult result : results) {
+            String data = result.getQrCodeId() != null ? stored.get(result.getQrCodeId()) : null;
+            result.setMatches(result.isDecoded() && data != null && data.equals(result.getText()));
+        }
+    }
+
+    private DecodeResult decodeImage(String source, byte[] bytes) {
+        DecodeResult.DecodeResultBuilder result = DecodeResult.builder().source(source);
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> imageReaders = ImageIO.getImageReaders(input);
+            if (!imageReaders.hasNext()) {
+                return result.error("Unsupported image format").build();
+            }
+            ImageReader imageReader = imageReaders.next();
+            BufferedImage image;
+            try {
+                imageReader.setInput(input, true, true);
+                // a file of a few KB can declare dimensions whose raster would need gigabytes
+                int width = imageReader.getWidth(0);
+                int height = imageReader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    return result.error("Image is " + width + "x" + height + ", larger than the limit of "
+                            + maxPixels + " pixels").build();
+                }
+                image = imageReader.read(0);
+            } finally {
+                imageReader.dispose();
+            }
+            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+            QRCodeReader reader = new QRCodeReader();
+            Result decoded;
+            try {
+                decoded = reader.decode(bitmap, HINTS);
+            } catch (ReaderException e) {
+                // clean renders decode on the fast path; skewed or noisy scans get a second, slower pass
+                reader.reset();
+                decoded = reader.decode(bitmap, TRY_HARDER_HINTS);
+            }
+            return result.decoded(true).text(decoded.getText()).build();
+        } catch (NotFoundException e) {
+            return result.error("No QR code found").build();
+        } catch (ReaderException e) {
+            return result.error("QR code could not be read").build();
+        } catch (IOException | RuntimeException e) {
+            // ImageIO plugins throw unchecked exceptions on some malformed files; that fails this image only
+            return result.error("Unreadable image: " + e.getMessage()).build();
+        }
+    }
+
+    private static Long parseId(String source) {
+        if (source == null) {
+            return null;
+        }
+        String name = source.substring(source.lastIndexOf('/') + 1);
+        int extension = name.lastIndexOf('.');
+        Matcher matcher = TRAILING_ID.matcher(extension > 0 ? name.substring(0, extension) : name);
+        return matcher.find() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    private static boolean isZip(String fileName, String contentType) {
+        return "application/zip".equals(contentType)
+                || "application/x-zip-compressed".equals(contentType)
+                || fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+
+    private static boolean isMetadataEntry(String name) {
+        String baseName = name.substring(name.lastIndexOf('/') + 1);
+        return name.startsWith("__MACOSX/") || baseName.startsWith(".");
+    }
+
+    private static Map<DecodeHintType, Object> hints(boolean tryHarder) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name());
+        if (tryHarder) {
+            hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        }
+        return hints;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.qrcodegenerator.service;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.ExportFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class QRCodeExportService {
+    // Tuples instead of entities: nothing is added to the persistence context, so memory stays flat
+    private static final String EXPORT_QUERY = "select q.id as id, q.data as data, u.id as userId "
+            + "from QRCode q left join q.users u order by q.id, u.id";
+    private static final int WRITE_BUFFER_CHARS = 64 * 1024;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final QRCodeProperties properties;
+
+    public QRCodeExportService(PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                               QRCodeProperties properties) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    public Duration getTimeout() {
+        return properties.getExport().getTimeout();
+    }
+
+    public long export(ExportFormat format, OutputStream outputStream) {
+        long started = System.nanoTime();
+        Long exported = transactionTemplate.execute(status -> {
+            try {
+                return write(format, outputStream);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        long count = exported != null ? exported : 0;
+        log.info("Exported {} QR codes as {} in {} ms", count, format, (System.nanoTime() - started) / 1_000_000);
+        return count;
+    }
+
+    private long write(ExportFormat format, OutputStream outputStream) throws IOException {
+        TypedQuery<Tuple> query = entityManager.createQuery(EXPORT_QUERY, Tuple.class);
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, properties.getExport().getFetchSize());
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        query.setHint(HibernateHints.HINT_CACHEABLE, false);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8),
+                WRITE_BUFFER_CHARS);
+        RecordWriter records = format == ExportFormat.NDJSON
+                ? new NdjsonRecordWriter(objectMapper.getFactory().createGenerator(writer))
+                : new CsvRecordWriter(writer);
+
+        long count = 0;
+        Long currentId = null;
+        String currentData = null;
+        List<Long> userIds = new ArrayList<>();
+        try (Stream<Tuple> rows = query.getResultStream()) {
+            Iterator<Tuple> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Tuple row = iterator.next();
+                Long id = row.get("id", Long.class);
+                if (!id.equals(currentId)) {
+                    if (currentId != null) {
+                        records.write(currentId, currentData, userIds);
+                        count++;
+                    }
+                    currentId = id;
+                    currentData = row.get("data", String.class);
+                    userIds.clear();
+                }
+                Long userId = row.get("userId", Long.class);
+                if (userId != null) {
+                    userIds.add(userId);
+                }
+            }
+        }
+        if (currentId != null) {
+            records.write(currentId, currentData, userIds);
+            count++;
+        }
+        records.flush();
+        return count;
+    }
+
+    private interface RecordWriter {
+        void write(Long id, String data, List<Long> userIds) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private static final class CsvRecordWriter implements RecordWriter {
+        private final Writer writer;
+
+        CsvRecordWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write("id,data,userIds\n");
+        }
+
+        @Override
+        public void write(Long id, String data, List<Long> userIds) throws IOException {
+            writer.write(Long.toString(id));
+            writer.write(',');
+            writeQuoted(data);
+            writer.write(',');
+            for (int i = 0; i < userIds.size(); i++) {
+                if (i > 0) {
+                    writer.write(';');
+                }
+                writer.write(Long.toString(userIds.get(i)));
+            }
+            writer.write('\n');
+        }
+
+        private void writeQuoted(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class NdjsonRecordWriter implements RecordWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRecordWriter(JsonGenerator generator) {
+            this.generator = generator;
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(Long id, String data, List<Long> userIds) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", id);
+            generator.writeStringField("data", data);
+            generator.writeArrayFieldStart("userIds");
+            for (Long userId : userIds) {
+                generator.writeNumber(userId);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.qrcodegenerator.service;
+
+import com.example.qrcodegenerator.cache.SimpleCache;
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.ImportReport;
+import com.example.qrcodegenerator.model.QRCode;
+import com.example.qrcodegenerator.repository.QRCodeIdAllocator;
+import com.example.qrcodegenerator.util.ContentHash;
+import com.example.qrcodegenerator.util.CsvReader;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Each batch is written as one unnest insert with explicit ids from QRCodeIdAllocator; images are rendered
+// lazily on first request, never at import time.
+@Slf4j
+@Service
+public class QRCodeImportService {
+    private static final int MAX_DATA_LENGTH = 1000;
+    private static final int READ_BUFFER_CHARS = 64 * 1024;
+    private static final String INSERT_QRCODE_SQL =
+            "insert into qrcode (id, data, content_hash) select * from unnest(?::bigint[], ?::text[], ?::text[])";
+    private static final String INSERT_QRCODE_DEDUP_SQL =
+            INSERT_QRCODE_SQL + " on conflict (content_hash) do nothing";
+    private static final String INSERT_LINK_SQL =
+            "insert into user_qr_codes (user_id, qr_code_id) select * from unnest(?::bigint[], ?::bigint[]) "
+                    + "on conflict do nothing";
+    private static final String INSERT_LINK_BY_HASH_SQL =
+            "insert into user_qr_codes (user_id, qr_code_id) select link.user_id, qrcode.id "
+                    + "from unnest(?::bigint[], ?::text[]) as link(user_id, content_hash) "
+                    + "join qrcode on qrcode.content_hash = link.content_hash on conflict do nothing";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QRCodeIdAllocator idAllocator;
+    private final UserService userService;
+    private final SimpleCache<String, List<QRCode>> contentSearchCache;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final QRCodeProperties properties;
+
+    public QRCodeImportService(JdbcTemplate jdbcTemplate,
+                               QRCodeIdAllocator idAllocator,
+                               UserService userService,
+                               SimpleCache<String, List<QRCode>> contentSearchCache,
+                               EntityManagerFactory entityManagerFactory,
+                               PlatformTransactionManager transactionManager,
+                               QRCodeProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
+        this.userService = userService;
+        this.contentSearchCache = contentSearchCache;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    public ImportReport importCsv(InputStream input, Long defaultUserId) throws IOException {
+        long started = System.nanoTime();
+        QRCodeProperties.CsvImport settings = properties.getCsvImport();
+        boolean dedup = properties.getDedup().isEnabled();
+        if (defaultUserId != null) {
+            userService.getById(defaultUserId);
+        }
+
+        CsvReader reader = new CsvReader(new BufferedReader(
+                new InputStreamReader(input, StandardCharsets.UTF_8), READ_BUFFER_CHARS));
+        List<String> header = reader.next();
+        if (header == null) {
+            return report(0, 0, 0, 0, new ArrayList<>(), started);
+        }
+        int dataColumn = columnIndex(header, "data");
+        int userColumn = Math.max(columnIndex(header, "userIds"), columnIndex(header, "userId"));
+        if (dataColumn < 0) {
+            throw new IllegalArgumentException("CSV header must contain a 'data' column");
+        }
+
+        Batch batch = new Batch(settings.getBatchSize());
+        Set<Long> knownUserIds = new HashSet<>();
+        List<ImportReport.LineError> errors = new ArrayList<>();
+        long recordsRead = 0;
+        long failed = 0;
+        long[] written = new long[2];
+
+        // batches commit one by one, so whatever reached the database is evicted even if a later batch fails
+        try {
+            List<String> record;
+            while ((record = reader.next()) != null) {
+                if (record.size() == 1 && record.get(0).isEmpty()) {
+                    continue;
+                }
+                recordsRead++;
+                String data = dataColumn < record.size() ? record.get(dataColumn) : null;
+                String userIds = userColumn >= 0 && userColumn < record.size() ? record.get(userColumn) : "";
+                try {
+                    validateData(data);
+                    long[] linkedUsers = parseUserIds(userIds, defaultUserId, knownUserIds);
+                    batch.add(data, dedup ? ContentHash.sha256(data) : null, linkedUsers);
+                } catch (RuntimeException e) {
+                    failed++;
+                    if (errors.size() < settings.getMaxReportedErrors()) {
+                        errors.add(new ImportReport.LineError(reader.getRecordLine(), e.getMessage()));
+                    }
+                    continue;
+                }
+                if (batch.size() >= settings.getBatchSize()) {
+                    flush(batch, dedup, written);
+                }
+            }
+            flush(batch, dedup, written);
+        } finally {
+            if (written[0] + written[1] > 0) {
+                entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+                contentSearchCache.clear();
+            }
+        }
+        ImportReport report = report(recordsRead, written[0], written[1], failed, errors, started);
+        log.info("Imported {} of {} CSV records ({} rejected) in {} ms, {} records/s", report.getImported(),
+                recordsRead, failed, report.getElapsedMillis(), Math.round(report.getRecordsPerSecond()));
+        return report;
+    }
+
+    private void flush(Batch batch, boolean dedup, long[] written) {
+        if (batch.size() == 0) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            long[] ids = idAllocator.allocate(batch.size());
+            Long[] rowIds = new Long[batch.size()];
+            for (int row = 0; row < rowIds.length; row++) {
+                rowIds[row] = ids[row];
+            }
+            // one statement per batch, so the update count is the number of rows actually inserted
+            written[0] += jdbcTemplate.update(dedup ? INSERT_QRCODE_DEDUP_SQL : INSERT_QRCODE_SQL, statement -> {
+                Connection connection = statement.getConnection();
+                statement.setArray(1, connection.createArrayOf("bigint", rowIds));
+                statement.setArray(2, connection.createArrayOf("text", batch.data.toArray()));
+                statement.setArray(3, connection.createArrayOf("text", batch.hashes.toArray()));
+            });
+
+            int linkCount = batch.linkCount();
+            if (linkCount > 0) {
+                Long[] linkUsers = new Long[linkCount];
+                Object[] linkTargets = new Object[linkCount];
+                int link = 0;
+                for (int row = 0; row < batch.size(); row++) {
+                    for (long userId : batch.userIds.get(row)) {
+                        linkUsers[link] = userId;
+                        linkTargets[link++] = dedup ? batch.hashes.get(row) : rowIds[row];
+                    }
+                }
+                written[1] += jdbcTemplate.update(dedup ? INSERT_LINK_BY_HASH_SQL : INSERT_LINK_SQL, statement -> {
+                    Connection connection = statement.getConnection();
+                    statement.setArray(1, connection.createArrayOf("bigint", linkUsers));
+                    statement.setArray(2, connection.createArrayOf(dedup ? "text" : "bigint", linkTargets));
+                });
+            }
+        });
+        batch.clear();
+    }
+
+    private void validateData(String data) {
+        if (data == null || data.trim().isEmpty()) {
+            throw new IllegalArgumentException("Data cannot be blank");
+        }
+        if (data.length() > MAX_DATA_LENGTH) {
+            throw new IllegalArgumentException("Data must be less than " + MAX_DATA_LENGTH + " characters");
+        }
+    }
+
+    private long[] parseUserIds(String value, Long defaultUserId, Set<Long> knownUserIds) {
+        List<Long> userIds = new ArrayList<>(1);
+        if (defaultUserId != null) {
+            userIds.add(defaultUserId);
+        }
+        if (value != null && !value.isBlank()) {
+            for (String part : value.split(";")) {
+                if (part.isBlank()) {
+                    continue;
+                }
+                long userId;
+                try {
+                    userId = Long.parseLong(part.trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid user id: " + part.trim());
+                }
+                if (knownUserIds.add(userId)) {
+                    try {
+                        userService.getById(userId);
+                    } catch (RuntimeException e) {
+                        knownUserIds.remove(userId);
+                        throw new IllegalArgumentException("User not found with id: " + userId);
+                    }
+                }
+                if (!userIds.contains(userId)) {
+                    userIds.add(userId);
+                }
+            }
+        }
+        return userIds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static int columnIndex(List<String> header, String name) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ImportReport report(long recordsRead, long imported, long linked, long failed,
+                                       List<ImportReport.LineError> errors, long started) {
+        long elapsedNanos = System.nanoTime() - started;
+        return ImportReport.builder()
+                .recordsRead(recordsRead)
+                .imported(imported)
+                .linked(linked)
+                .failed(failed)
+                .errors(errors)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .recordsPerSecond(elapsedNanos > 0 ? recordsRead * 1_000_000_000.0 / elapsedNanos : 0)
+                .build();
+    }
+
+    private static final class Batch {
+        private final List<String> data;
+        private final List<String> hashes;
+        private final List<long[]> userIds;
+
+        Batch(int capacity) {
+            this.data = new ArrayList<>(capacity);
+            this.hashes = new ArrayList<>(capacity);
+            this.userIds = new ArrayList<>(capacity);
+        }
+
+        void add(String value, String hash, long[] linkedUsers) {
+            data.add(value);
+            hashes.add(hash);
+            userIds.add(linkedUsers);
+        }
+
+        int size() {
+            return data.size();
+        }
+
+        int linkCount() {
+            int count = 0;
+            for (long[] ids : userIds) {
+                count += ids.length;
+            }
+            return count;
+        }
+
+        void clear() {
+            data.clear();
+            hashes.clear();
+            userIds.clear();
+        }
+    }
+}
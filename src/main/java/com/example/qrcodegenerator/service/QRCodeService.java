@@ -1,29 +1,50 @@
 package com.example.qrcodegenerator.service;
 
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.ListImageOptions;
 import com.example.qrcodegenerator.dto.QRCodeRequest;
 import com.example.qrcodegenerator.dto.QRCodeResponse;
 import com.example.qrcodegenerator.model.QRCode;
 import com.example.qrcodegenerator.model.User;
 import com.example.qrcodegenerator.repository.QRCodeRepository;
+import com.example.qrcodegenerator.cache.HotnessTracker;
 import com.example.qrcodegenerator.cache.SimpleCache;
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.EncodeHintType;
-import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageConfig;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
+import com.example.qrcodegenerator.cache.SingleFlight;
+import com.example.qrcodegenerator.cache.TieredImageStore;
+import com.example.qrcodegenerator.util.ContentHash;
+import com.example.qrcodegenerator.render.EncodingMode;
+import com.example.qrcodegenerator.render.HexColors;
+import com.example.qrcodegenerator.render.PngSink;
+import com.example.qrcodegenerator.render.QRCodeRenderer;
+import com.example.qrcodegenerator.render.RenderProfile;
+import com.example.qrcodegenerator.render.RenderProfileRegistry;
+import com.example.qrcodegenerator.render.RenderSpec;
+import com.example.qrcodegenerator.writebehind.PendingWrite;
+import com.example.qrcodegenerator.writebehind.WriteBehindWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -32,45 +53,283 @@ public class QRCodeService {
     private static final int DEFAULT_DIMENSION = 350;
     private static final String DEFAULT_COLOR = "#000000";
     private static final String DEFAULT_BACKGROUND_COLOR = "#FFFFFF";
+    private static final int DEFAULT_ON_COLOR = 0xFF000000;
+    private static final int DEFAULT_OFF_COLOR = 0xFFFFFFFF;
+    private static final int MAX_BATCH_IDS = 1000;
 
     private final QRCodeRepository qrCodeRepository;
     private final SimpleCache<String, List<QRCode>> contentSearchCache;
+    private final SingleFlight<String, List<QRCode>> contentSearches = new SingleFlight<>();
     private final UserService userService;
-    private final QRCodeWriter qrCodeWriter;
+    private final QRCodeRenderer renderer;
+    private final TieredImageStore imageStore;
+    private final RenderProfileRegistry profileRegistry;
+    private final QRCodeProperties properties;
+    private final WriteBehindWriter writeBehind;
+    private final HotnessTracker hotness;
+    private final ExecutorService listImageExecutor;
     private final RequestCounterService counterService;
 
     public QRCodeService(QRCodeRepository qrCodeRepository,
                          SimpleCache<String, List<QRCode>> contentSearchCache,
                          UserService userService,
-                         QRCodeWriter qrCodeWriter) {
+                         QRCodeRenderer renderer,
+                         TieredImageStore imageStore,
+                         RenderProfileRegistry profileRegistry,
+                         QRCodeProperties properties,
+                         WriteBehindWriter writeBehind,
+                         HotnessTracker hotness) {
         this.qrCodeRepository = qrCodeRepository;
         this.contentSearchCache = contentSearchCache;
         this.userService = userService;
-        this.qrCodeWriter = qrCodeWriter;
+        this.renderer = renderer;
+        this.imageStore = imageStore;
+        this.profileRegistry = profileRegistry;
+        this.properties = properties;
+        this.writeBehind = writeBehind;
+        this.hotness = hotness;
+        int threads = properties.getListImages().getThreads() > 0
+                ? properties.getListImages().getThreads()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.listImageExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "qrcode-list-render-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         this.counterService = RequestCounterService.getInstance();
     }
 
+    @PreDestroy
+    public void shutdown() {
+        listImageExecutor.shutdownNow();
+    }
+
     public List<QRCodeResponse> generateBulkQRCodes(List<QRCodeRequest> requests, Long userId) {
         counterService.incrementCount();
         if (requests == null) {
             throw new IllegalArgumentException("Requests list cannot be null");
         }
-        User user = userId != null ? userService.getById(userId) : null;
-        return requests.stream()
-                .map(request -> generateSingleQRCode(request, user))
-                .collect(Collectors.toList());
+        requests.forEach(this::validateRequest);
+        User user = userId != null ? userService.getReference(userId) : null;
+
+        Map<RenderSpec, String> images = new HashMap<>();
+        List<RenderSpec> specs = new ArrayList<>(requests.size());
+        for (QRCodeRequest request : requests) {
+            RenderSpec spec = toRenderSpec(request);
+            specs.add(spec);
+            images.computeIfAbsent(spec, this::generateQRCodeImage);
+        }
+
+        Map<String, QRCode> batchRows = properties.getDedup().isEnabled()
+                ? findExistingByContent(requests)
+                : null;
+        List<PendingWrite> staged = writeBehind.isEnabled() ? new ArrayList<>(requests.size()) : null;
+        List<QRCodeResponse> responses = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            responses.add(generateSingleQRCode(requests.get(i), user, images.get(specs.get(i)), batchRows, staged));
+        }
+        if (staged != null) {
+            // one wait for the whole request; the log syncs all of these with a single fsync
+            writeBehind.awaitDurable(staged);
+        }
+        return responses;
     }
 
-    private QRCodeResponse generateSingleQRCode(QRCodeRequest request, User user) {
+    private QRCodeResponse generateSingleQRCode(QRCodeRequest request, User user, String imageUrl,
+                                                Map<String, QRCode> batchRows, List<PendingWrite> staged) {
         counterService.incrementCount();
+        QRCode savedQRCode;
+        if (batchRows != null) {
+            String contentHash = ContentHash.sha256(request.getData());
+            savedQRCode = batchRows.computeIfAbsent(contentHash, hash -> createByContent(request.getData(), hash));
+            linkUser(savedQRCode, user);
+        } else if (staged != null) {
+            savedQRCode = stageQRCode(request.getData(), user, staged);
+        } else {
+            savedQRCode = persistQRCode(request.getData(), user);
+        }
+
+        String size;
+        String colors;
+        if (request.getProfile() != null) {
+            RenderProfile profile = profileRegistry.get(request.getProfile());
+            size = profile.getSize();
+            colors = profile.getColors();
+        } else {
+            Integer width = request.getWidth();
+            Integer height = request.getHeight();
+            size = width + "x" + height;
+            colors = (request.getColor() != null ? request.getColor() : DEFAULT_COLOR) + "/" + (request.getBackgroundColor() != null ? request.getBackgroundColor() : DEFAULT_BACKGROUND_COLOR);
+        }
+
+        return QRCodeResponse.builder()
+                .id(savedQRCode.getId())
+                .data(savedQRCode.getData())
+                .imageUrl(imageUrl)
+                .size(size)
+                .colors(colors)
+                .createdAt(LocalDateTime.now())
+                .userId(user != null ? user.getId() : null)
+                .build();
+    }
+
+    // Embeds an image in each response of a list, so a page of codes needs no follow-up /generate calls. Each
+    // distinct content is rendered once, in parallel, through the image store.
+    public List<QRCodeResponse> includeImages(List<QRCodeResponse> responses, ListImageOptions options) {
+        if (options == null || !options.includesImage() || responses.isEmpty()) {
+            return responses;
+        }
+        int maxImages = properties.getListImages().getMaxImages();
+        if (responses.size() > maxImages) {
+            throw new IllegalArgumentException("Images can be included for at most " + maxImages
+                    + " QR codes; narrow the query");
+        }
+
+        RenderSpec template;
+        String size;
+        String colors;
+        if (options.getProfile() != null) {
+            RenderProfile profile = profileRegistry.get(options.getProfile());
+            template = profile.getTemplate();
+            size = profile.getSize();
+            colors = profile.getColors();
+        } else {
+            int width = getValidDimension(options.getWidth());
+            int height = getValidDimension(options.getHeight());
+            template = RenderSpec.builder()
+                    .width(width)
+                    .height(height)
+                    .onColor(DEFAULT_ON_COLOR)
+                    .offColor(DEFAULT_OFF_COLOR)
+                    .build();
+            size = width + "x" + height;
+            colors = DEFAULT_COLOR + "/" + DEFAULT_BACKGROUND_COLOR;
+        }
+
+        Map<String, Future<String>> images = new HashMap<>();
+        for (QRCodeResponse response : responses) {
+            images.computeIfAbsent(response.getData(), data ->
+                    listImageExecutor.submit(() -> generateQRCodeImage(template.withData(data))));
+        }
+        try {
+            for (QRCodeResponse response : responses) {
+                response.setImageUrl(images.get(response.getData()).get());
+                response.setSize(size);
+                response.setColors(colors);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            images.values().forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Rendering list images was interrupted", e);
+        } catch (ExecutionException e) {
+            images.values().forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to render list images: " + e.getCause().getMessage(), e.getCause());
+        }
+        return responses;
+    }
+
+    public String renderImage(QRCodeRequest request) {
+        counterService.incrementCount();
+        validateRequest(request);
+        return generateQRCodeImage(toRenderSpec(request));
+    }
+
+    private void validateRequest(QRCodeRequest request) {
         if (request == null || request.getData() == null || request.getData().trim().isEmpty()) {
             throw new IllegalArgumentException("QR code request or data cannot be null or empty");
         }
+    }
 
-        String imageBase64 = generateQRCodeImage(request);
+    public QRCode createQRCode(String data, Long userId) {
+        counterService.incrementCount();
+        if (data == null || data.trim().isEmpty()) {
+            throw new IllegalArgumentException("QR code data cannot be null or empty");
+        }
+        User user = userId != null ? userService.getReference(userId) : null;
+        if (writeBehind.isEnabled()) {
+            List<PendingWrite> staged = new ArrayList<>(1);
+            QRCode qrCode = stageQRCode(data, user, staged);
+            writeBehind.awaitDurable(staged);
+            return qrCode;
+        }
+        return persistQRCode(data, user);
+    }
+
+    // With dedup a row may be shared by several users, so it is never rewritten while linked: the caller's link
+    // moves to the row for the new content and the original row stays as it is for everyone else.
+    public QRCode updateData(Long id, String data, Long userId) {
+        counterService.incrementCount();
+        QRCode qrCode = getById(id);
+        if (!properties.getDedup().isEnabled()) {
+            qrCode.setData(data);
+            // the old hash would match the old content once dedup is switched back on
+            qrCode.setContentHash(null);
+            return qrCodeRepository.save(qrCode);
+        }
+
+        String contentHash = ContentHash.sha256(data);
+        Optional<QRCode> existing = qrCodeRepository.findByContentHash(contentHash);
+        if (existing.isPresent() && existing.get().getId().equals(id)) {
+            return qrCode;
+        }
+        User user = userId != null ? linkedUser(qrCode, userId) : soleUser(qrCode);
+        if (user == null) {
+            // an unlinked row is not visible through any user, so it can be rewritten in place
+            existing.ifPresent(other -> {
+                throw new IllegalArgumentException("QR code with identical data already exists with id: "
+                        + other.getId());
+            });
+            qrCode.setData(data);
+            qrCode.setContentHash(contentHash);
+            return qrCodeRepository.save(qrCode);
+        }
+        QRCode target = existing.orElseGet(() -> createByContent(data, contentHash));
+        user.getQrCodes().removeIf(code -> Objects.equals(code.getId(), id));
+        qrCode.getUsers().removeIf(linkedUser -> Objects.equals(linkedUser.getId(), user.getId()));
+        if (target.getUsers().stream().noneMatch(linkedUser -> Objects.equals(linkedUser.getId(), user.getId()))) {
+            user.addQRCode(target);
+        }
+        userService.save(user);
+        return target;
+    }
+
+    // The user is taken from the row rather than from UserService: its cached copy carries no qrCodes, and saving
+    // it would replace every other link the user has with this one.
+    private User linkedUser(QRCode qrCode, Long userId) {
+        return qrCode.getUsers().stream()
+                .filter(linkedUser -> Objects.equals(linkedUser.getId(), userId))
+                .findFirst()
+                .orElseThrow(() -> {
+                    userService.getById(userId);
+                    return new IllegalArgumentException("QR code " + qrCode.getId() + " is not linked to user "
+                            + userId);
+                });
+    }
+
+    private static User soleUser(QRCode qrCode) {
+        Set<User> users = qrCode.getUsers();
+        if (users.size() > 1) {
+            throw new IllegalArgumentException("QR code " + qrCode.getId() + " is shared by " + users.size()
+                    + " users; pass userId to update it for one of them");
+        }
+        return users.isEmpty() ? null : users.iterator().next();
+    }
+
+    private QRCode persistQRCode(String data, User user) {
+        if (properties.getDedup().isEnabled()) {
+            String contentHash = ContentHash.sha256(data);
+            QRCode qrCode = qrCodeRepository.findByContentHash(contentHash)
+                    .orElseGet(() -> createByContent(data, contentHash));
+            linkUser(qrCode, user);
+            return qrCode;
+        }
 
         QRCode qrCode = new QRCode();
-        qrCode.setData(request.getData());
+        qrCode.setData(data);
         if (user != null) {
             qrCode.addUser(user);
         }
@@ -80,52 +339,90 @@ public class QRCodeService {
         if (user != null) {
             userService.save(user);
         }
+        return savedQRCode;
+    }
+
+    // The returned entity is detached and only carries the id, data and user for the response.
+    private QRCode stageQRCode(String data, User user, List<PendingWrite> staged) {
+        PendingWrite row = writeBehind.stage(data, user != null ? user.getId() : null);
+        staged.add(row);
+        QRCode qrCode = new QRCode();
+        qrCode.setId(row.getId());
+        qrCode.setData(data);
+        if (user != null) {
+            qrCode.getUsers().add(user);
+        }
+        return qrCode;
+    }
 
-        Integer width = request.getWidth();
-        Integer height = request.getHeight();
-        String size = width + "x" + height;
-        String colors = (request.getColor() != null ? request.getColor() : DEFAULT_COLOR) + "/" + (request.getBackgroundColor() != null ? request.getBackgroundColor() : DEFAULT_BACKGROUND_COLOR);
+    private Map<String, QRCode> findExistingByContent(List<QRCodeRequest> requests) {
+        Set<String> contentHashes = requests.stream()
+                .map(request -> ContentHash.sha256(request.getData()))
+                .collect(Collectors.toSet());
+        Map<String, QRCode> existing = new HashMap<>();
+        qrCodeRepository.findByContentHashIn(contentHashes)
+                .forEach(qrCode -> existing.put(qrCode.getContentHash(), qrCode));
+        return existing;
+    }
 
-        return QRCodeResponse.builder()
-                .id(savedQRCode.getId())
-                .data(savedQRCode.getData())
-                .imageUrl("data:image/png;base64," + imageBase64)
-                .size(size)
-                .colors(colors)
-                .createdAt(LocalDateTime.now())
-                .userId(user != null ? user.getId() : null)
-                .build();
+    private QRCode createByContent(String data, String contentHash) {
+        QRCode qrCode = new QRCode();
+        qrCode.setData(data);
+        qrCode.setContentHash(contentHash);
+        try {
+            return qrCodeRepository.saveAndFlush(qrCode);
+        } catch (DataIntegrityViolationException e) {
+            // another request inserted the same content concurrently
+            return qrCodeRepository.findByContentHash(contentHash).orElseThrow(() -> e);
+        }
     }
 
-    private String generateQRCodeImage(QRCodeRequest request) {
+    private void linkUser(QRCode qrCode, User user) {
+        if (user == null) {
+            return;
+        }
+        boolean linked = qrCode.getUsers().stream()
+                .anyMatch(existing -> Objects.equals(existing.getId(), user.getId()));
+        if (!linked) {
+            user.addQRCode(qrCode);
+            userService.save(user);
+        }
+    }
+
+    private String generateQRCodeImage(RenderSpec spec) {
         counterService.incrementCount();
-        int width = getValidDimension(request.getWidth());
-        int height = getValidDimension(request.getHeight());
-        if (width <= 0 || height <= 0) {
-            throw new IllegalArgumentException("Width and height must be positive values");
+        return renderer.toDataUrl(imageStore.get(spec, renderer::renderPng));
+    }
+
+    private RenderSpec toRenderSpec(QRCodeRequest request) {
+        if (request.getProfile() != null) {
+            RenderSpec spec = profileRegistry.get(request.getProfile()).specFor(request.getData());
+            return request.getLogo() != null ? spec.toBuilder().logo(request.getLogo()).build() : spec;
         }
         String color = request.getColor() != null ? request.getColor() : DEFAULT_COLOR;
         String backgroundColor = request.getBackgroundColor() != null ? request.getBackgroundColor() : DEFAULT_BACKGROUND_COLOR;
+        RenderSpec.RenderSpecBuilder spec = RenderSpec.builder()
+                .data(request.getData())
+                .width(getValidDimension(request.getWidth()))
+                .height(getValidDimension(request.getHeight()))
+                .onColor(HexColors.parse(color))
+                .offColor(HexColors.parse(backgroundColor))
+                .encodingMode(EncodingMode.from(request.getEncodingMode()))
+                .logo(request.getLogo());
+        if (request.getErrorCorrection() != null) {
+            spec.errorCorrection(parseErrorCorrection(request.getErrorCorrection()));
+        }
+        if (request.getMargin() != null) {
+            spec.margin(request.getMargin());
+        }
+        return spec.build();
+    }
 
-        BitMatrix bitMatrix;
+    private ErrorCorrectionLevel parseErrorCorrection(String level) {
         try {
-            Map<EncodeHintType, Object> hints = new HashMap<>();
-            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-            bitMatrix = qrCodeWriter.encode(request.getData(), BarcodeFormat.QR_CODE, width, height, hints);
-
-            if (bitMatrix.getWidth() <= 0 || bitMatrix.getHeight() <= 0) {
-                throw new IllegalStateException("Generated BitMatrix has invalid dimensions: " + bitMatrix.getWidth() + "x" + bitMatrix.getHeight());
-            }
-
-            int onColor = parseHexColor(color);
-            int offColor = parseHexColor(backgroundColor);
-            MatrixToImageConfig config = new MatrixToImageConfig(onColor, offColor);
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream, config);
-            return Base64.getEncoder().encodeToString(outputStream.toByteArray());
-        } catch (WriterException | IOException e) {
-            throw new RuntimeException("Failed to generate QR code image: " + e.getMessage());
+            return ErrorCorrectionLevel.valueOf(level.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Error correction must be one of L, M, Q, H");
         }
     }
 
@@ -133,33 +430,36 @@ public class QRCodeService {
         return dimension != null && dimension > 0 ? dimension : DEFAULT_DIMENSION;
     }
 
-    private int parseHexColor(String hexColor) {
-        String hex = hexColor.startsWith("#") ? hexColor.substring(1) : hexColor;
-        return (int) Long.parseLong(hex, 16) | 0xFF000000;
-    }
-
     public byte[] generateQRCode(String text) {
         counterService.incrementCount();
-        if (text == null || text.trim().isEmpty()) {
-            throw new IllegalArgumentException("Text for QR code cannot be null or empty");
-        }
+        return imageStore.get(defaultSpec(text), renderer::renderPng);
+    }
 
-        BitMatrix bitMatrix;
-        try {
-            Map<EncodeHintType, Object> hints = new HashMap<>();
-            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-            bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, DEFAULT_DIMENSION, DEFAULT_DIMENSION, hints);
+    public void writeQRCode(String text, PngSink sink) throws IOException {
+        writeQRCode(text, null, sink);
+    }
 
-            if (bitMatrix.getWidth() <= 0 || bitMatrix.getHeight() <= 0) {
-                throw new IllegalStateException("Generated BitMatrix has invalid dimensions: " + bitMatrix.getWidth() + "x" + bitMatrix.getHeight());
-            }
+    public void writeQRCode(String text, String logo, PngSink sink) throws IOException {
+        counterService.incrementCount();
+        RenderSpec spec = defaultSpec(text).toBuilder().logo(logo).build();
+        if (imageStore.isEnabled()) {
+            imageStore.write(spec, renderer::renderPng, sink);
+        } else {
+            renderer.renderPng(spec, sink);
+        }
+    }
 
-            ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", pngOutputStream);
-            return pngOutputStream.toByteArray();
-        } catch (WriterException | IOException e) {
-            throw new RuntimeException("Failed to generate QR code: " + e.getMessage());
+    private RenderSpec defaultSpec(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Text for QR code cannot be null or empty");
         }
+        return RenderSpec.builder()
+                .data(text)
+                .width(DEFAULT_DIMENSION)
+                .height(DEFAULT_DIMENSION)
+                .onColor(DEFAULT_ON_COLOR)
+                .offColor(DEFAULT_OFF_COLOR)
+                .build();
     }
 
     public List<QRCode> findAll() {
@@ -174,12 +474,15 @@ public class QRCodeService {
 
     public QRCode getById(Long id) {
         counterService.incrementCount();
+        writeBehind.awaitCommitted(id);
         return qrCodeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("QRCode not found with id: " + id));
     }
 
     public void deleteById(Long id) {
         counterService.incrementCount();
+        // a queued insert would otherwise bring the row back after the delete
+        writeBehind.awaitCommitted(id);
         qrCodeRepository.deleteById(id);
     }
 
@@ -188,19 +491,57 @@ public class QRCodeService {
         if (user == null) {
             return new ArrayList<>();
         }
-        return user.getQrCodes().stream().collect(Collectors.toList());
+        return qrCodeRepository.findByUsersId(user.getId());
+    }
+
+    public List<QRCode> findAllByIds(Collection<Long> ids) {
+        counterService.incrementCount();
+        Set<Long> distinctIds = validateBatchIds(ids, "QR code");
+        return qrCodeRepository.findAllWithUsersByIdIn(distinctIds);
+    }
+
+    public Map<Long, List<QRCode>> findByUserIds(Collection<Long> userIds) {
+        counterService.incrementCount();
+        Set<Long> distinctIds = validateBatchIds(userIds, "user");
+        Map<Long, List<QRCode>> byUser = new LinkedHashMap<>();
+        for (Object[] row : qrCodeRepository.findPairsByUserIdIn(distinctIds)) {
+            byUser.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((QRCode) row[1]);
+        }
+        return byUser;
+    }
+
+    private Set<Long> validateBatchIds(Collection<Long> ids, String kind) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one " + kind + " id is required");
+        }
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        if (distinctIds.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " " + kind
+                    + " ids can be requested at once");
+        }
+        return distinctIds;
     }
 
     public List<QRCode> findByDataContaining(String data) {
         counterService.incrementCount();
+        hotness.recordSearch(data);
         List<QRCode> cachedResult = contentSearchCache.get(data);
         if (cachedResult != null) {
             return cachedResult;
         }
-
-        List<QRCode> result = qrCodeRepository.findByDataContaining(data);
-        contentSearchCache.put(data, result);
-        return result;
+        return contentSearches.execute(data, () -> {
+            List<QRCode> loaded = contentSearchCache.get(data);
+            if (loaded != null) {
+                return loaded;
+            }
+            List<QRCode> result = qrCodeRepository.findByDataContaining(data);
+            // one-off terms are not worth a cache entry; SimpleCache has no eviction
+            if (data != null && hotness.admitSearch(data)) {
+                contentSearchCache.put(data, result);
+            }
+            return result;
+        });
     }
 
     public void clearContentSearchCache(String content) {
@@ -217,4 +558,4 @@ public class QRCodeService {
         counterService.incrementCount();
         counterService.reset();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.example.qrcodegenerator.service;
 
 public class RequestCounterService {
+    private static final ThreadLocal<Boolean> UNCOUNTED = new ThreadLocal<>();
     private static RequestCounterService instance;
     private long requestCount;
 
@@ -15,8 +16,22 @@ public class RequestCounterService {
         return instance;
     }
 
-    public synchronized void incrementCount() {
-        requestCount++;
+    public void incrementCount() {
+        if (UNCOUNTED.get() == null) {
+            synchronized (this) {
+                requestCount++;
+            }
+        }
+    }
+
+    // for internal work such as warm-up renders; only increments made on the calling thread are skipped
+    public void runUncounted(Runnable action) {
+        UNCOUNTED.set(Boolean.TRUE);
+        try {
+            action.run();
+        } finally {
+            UNCOUNTED.remove();
+        }
     }
 
     public synchronized long getRequestCount() {
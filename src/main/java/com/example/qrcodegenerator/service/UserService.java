@@ -2,8 +2,14 @@ package com.example.qrcodegenerator.service;
 
 import com.example.qrcodegenerator.model.User;
 import com.example.qrcodegenerator.repository.UserRepository;
-import com.example.qrcodegenerator.cache.SimpleCache;
+import com.example.qrcodegenerator.cache.SingleFlight;
+import com.example.qrcodegenerator.cache.UserCache;
+import com.example.qrcodegenerator.cache.UserDirectory;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,12 +20,22 @@ import java.util.Optional;
 public class UserService
 {
     private final UserRepository userRepository;
-    private final SimpleCache<String, User> emailCache;
+    private final UserCache userCache;
+    private final UserDirectory userDirectory;
+    private final SingleFlight<String, Optional<User>> emailLookups = new SingleFlight<>();
 
-    public UserService(UserRepository userRepository, SimpleCache<String, User> emailCache)
+    public UserService(UserRepository userRepository, UserCache userCache, UserDirectory userDirectory)
     {
         this.userRepository = userRepository;
-        this.emailCache = emailCache;
+        this.userCache = userCache;
+        this.userDirectory = userDirectory;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadDirectory()
+    {
+        int loaded = userDirectory.load(userRepository::findAll);
+        log.info("Loaded {} users into the user directory", loaded);
     }
 
     public List<User> findAll()
@@ -31,44 +47,122 @@ public class UserService
 
     public User save(User user)
     {
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userCache.put(savedUser);
+        userDirectory.put(savedUser);
+        return savedUser;
     }
 
     public User getById(Long id)
     {
-        return userRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
+        Optional<User> cachedUser = userCache.getById(id);
+        if (cachedUser.isPresent())
+        {
+            return cachedUser.get();
+        }
+        if (userCache.isKnownMissingId(id))
+        {
+            throw new RuntimeException("User not found with id: " + id);
+        }
+
+        long epoch = userCache.epoch();
+        Optional<User> user = userRepository.findById(id);
+        if (user.isEmpty())
+        {
+            userCache.putMissingIdIfCurrent(id, epoch);
+            throw new RuntimeException("User not found with id: " + id);
+        }
+        userCache.putIfCurrent(user.get(), epoch);
+        return user.get();
+    }
+
+    public User getReference(Long id)
+    {
+        getById(id);
+        return userRepository.getReferenceById(id);
     }
 
     public User updateUser(Long id, User userDetails)
     {
-        User user = getById(id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
         user.setName(userDetails.getName());
         user.setEmail(userDetails.getEmail());
-        return userRepository.save(user);
+        User updatedUser = userRepository.save(user);
+        userCache.put(updatedUser);
+        userDirectory.put(updatedUser);
+        return updatedUser;
     }
 
     public void deleteById(Long id)
     {
         userRepository.deleteById(id);
+        userCache.evict(id);
+        userDirectory.remove(id);
     }
 
-    public List<User> findByNameContaining(String namePart)
+    public List<User> searchByName(String namePart, int limit)
     {
-        return userRepository.findByNameContaining(namePart);
+        if (userDirectory.isReady())
+        {
+            return userDirectory.searchByName(namePart, limit);
+        }
+        return userRepository.findByNameContainingIgnoreCase(namePart, PageRequest.of(0, limit, Sort.by("name")));
+    }
+
+    public List<User> searchByEmailPrefix(String prefix, int limit)
+    {
+        if (userDirectory.isReady())
+        {
+            return userDirectory.searchByEmailPrefix(prefix, limit);
+        }
+        return userRepository.findByEmailStartingWithIgnoreCase(prefix, PageRequest.of(0, limit, Sort.by("email")));
     }
 
     public Optional<User> findByEmailWithCache(String email)
     {
-        User cachedUser = emailCache.get(email);
-        if (cachedUser != null)
+        if (userDirectory.isReady())
+        {
+            Optional<User> indexed = userDirectory.findByEmail(email);
+            if (indexed.isPresent())
+            {
+                return indexed;
+            }
+        }
+        Optional<User> cachedUser = userCache.getByEmail(email);
+        if (cachedUser.isPresent())
         {
             log.info("Returning cached user for email: {}", email);
-            return Optional.of(cachedUser);
+            return cachedUser;
+        }
+        if (userCache.isKnownMissingEmail(email))
+        {
+            return Optional.empty();
         }
+        return emailLookups.execute(email, () -> loadByEmail(email));
+    }
 
+    private Optional<User> loadByEmail(String email)
+    {
+        Optional<User> cachedUser = userCache.getByEmail(email);
+        if (cachedUser.isPresent() || userCache.isKnownMissingEmail(email))
+        {
+            return cachedUser;
+        }
+
+        long epoch = userCache.epoch();
+        long directoryEpoch = userDirectory.epoch();
         Optional<User> user = userRepository.findByEmail(email);
-        user.ifPresent(u -> emailCache.put(email, u));
+        if (user.isPresent())
+        {
+            userCache.putIfCurrent(user.get(), epoch);
+            // the directory missed this email, e.g. a user saved on another instance
+            userDirectory.putIfCurrent(user.get(), directoryEpoch);
+        }
+        else
+        {
+            userCache.putMissingEmailIfCurrent(email, epoch);
+        }
         return user;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package com.example.qrcodegenerator.startup;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.QRCodeRequest;
+import com.example.qrcodegenerator.service.QRCodeService;
+import com.example.qrcodegenerator.service.RequestCounterService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+
+// Runs before ApplicationReadyEvent, so the readiness probe only reports ACCEPTING_TRAFFIC once the
+// render pipeline (ZXing encoder, PngEncoder and its scanline kernel, Base64) has been exercised and compiled
+// by the JIT. Warm-up renders are not counted as requests.
+@Slf4j
+@Component
+public class RenderWarmup implements ApplicationRunner {
+    private static final String[] PAYLOADS = {
+            "https://example.com",
+            "https://example.com/campaign/spring-sale?utm_source=print&utm_medium=poster",
+            "0123456789012345",
+            "HELLO WORLD 2024",
+            "Привет, мир! QR warm-up payload with non-Latin characters"
+    };
+    private static final int[] DIMENSIONS = {200, 350, 512};
+    private static final String[][] COLORS = {{"#000000", "#FFFFFF"}, {"#1A237E", "#FAFAFA"}};
+
+    private final QRCodeService qrCodeService;
+    private final QRCodeProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+
+    public RenderWarmup(QRCodeService qrCodeService, QRCodeProperties properties,
+                        ApplicationEventPublisher eventPublisher, Clock clock) {
+        this.qrCodeService = qrCodeService;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        QRCodeProperties.Warmup warmup = properties.getWarmup();
+        if (!warmup.isEnabled()) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+
+        Instant start = clock.instant();
+        Instant deadline = start.plus(warmup.getMaxDuration());
+        int[] rendered = new int[1];
+        try {
+            RequestCounterService.getInstance().runUncounted(() -> render(warmup, deadline, rendered));
+        } catch (RuntimeException e) {
+            log.warn("Render warm-up stopped after {} renders: {}", rendered[0], e.getMessage());
+        }
+        log.info("Render warm-up finished: {} renders in {} ms", rendered[0],
+                clock.millis() - start.toEpochMilli());
+    }
+
+    private void render(QRCodeProperties.Warmup warmup, Instant deadline, int[] rendered) {
+        for (int i = 0; i < warmup.getIterations() && clock.instant().isBefore(deadline); i++) {
+            String payload = PAYLOADS[i % PAYLOADS.length];
+            int dimension = DIMENSIONS[i % DIMENSIONS.length];
+            String[] colors = COLORS[i % COLORS.length];
+            QRCodeRequest request = new QRCodeRequest();
+            request.setData(payload + "#" + i);
+            request.setColor(colors[0]);
+            request.setBackgroundColor(colors[1]);
+            request.setWidth(dimension);
+            request.setHeight(dimension);
+            qrCodeService.renderImage(request);
+            qrCodeService.generateQRCode(request.getData());
+            rendered[0] += 2;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.qrcodegenerator.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Incremental RFC 4180 reader: quoted fields may contain commas, doubled quotes and line breaks.
+public class CsvReader
+{
+    private final Reader reader;
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private long lineNumber = 1;
+    private long recordLine;
+    private int pushedBack = -2;
+
+    public CsvReader(Reader reader)
+    {
+        this.reader = reader;
+    }
+
+    // line on which the record most recently returned by next() started
+    public long getRecordLine()
+    {
+        return recordLine;
+    }
+
+    // returns null at end of input; the returned list is reused by the next call
+    public List<String> next() throws IOException
+    {
+        fields.clear();
+        field.setLength(0);
+        recordLine = lineNumber;
+
+        int c = read();
+        if (c == -1)
+        {
+            return null;
+        }
+        boolean quoted = false;
+        boolean fieldStarted = false;
+        while (true)
+        {
+            if (quoted)
+            {
+                if (c == -1)
+                {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"')
+                {
+                    int following = read();
+                    if (following == '"')
+                    {
+                        field.append('"');
+                    }
+                    else
+                    {
+                        quoted = false;
+                        pushedBack = following;
+                    }
+                }
+                else
+                {
+                    if (c == '\n')
+                    {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            }
+            else if (c == '"' && !fieldStarted)
+            {
+                quoted = true;
+                fieldStarted = true;
+            }
+            else if (c == ',')
+            {
+                fields.add(field.toString());
+                field.setLength(0);
+                fieldStarted = false;
+            }
+            else if (c == '\n' || c == -1)
+            {
+                if (c == '\n')
+                {
+                    lineNumber++;
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            else if (c != '\r')
+            {
+                field.append((char) c);
+                fieldStarted = true;
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException
+    {
+        if (pushedBack != -2)
+        {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.qrcodegenerator.writebehind;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+// A QR code row that has an id but may not be in the database yet. Log record = id | userId (or -1) | data.
+public final class PendingWrite {
+    private static final long NO_USER = -1;
+
+    private final long id;
+    private final String data;
+    private final Long userId;
+    final CompletableFuture<Void> durable = new CompletableFuture<>();
+    final CompletableFuture<Void> committed = new CompletableFuture<>();
+    WriteAheadLog.Position position;
+
+    PendingWrite(long id, String data, Long userId) {
+        this.id = id;
+        this.data = data;
+        this.userId = userId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getData() {
+        return data;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    PendingWrite withoutUser() {
+        return new PendingWrite(id, data, null);
+    }
+
+    byte[] encode() {
+        byte[] text = data.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Long.BYTES * 2 + text.length)
+                .putLong(id)
+                .putLong(userId != null ? userId : NO_USER)
+                .put(text)
+                .array();
+    }
+
+    static PendingWrite decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        long id = buffer.getLong();
+        long userId = buffer.getLong();
+        String data = new String(record, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+        return new PendingWrite(id, data, userId == NO_USER ? null : userId);
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.qrcodegenerator.writebehind;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+// Append-only log split into numbered segment files; record = length | crc32c | payload. Appends are group
+// committed: one syncer thread writes everything queued since its last pass, forces it to disk with a single
+// fsync and then completes the callers' futures with the record's position. A segment is deleted once it has
+// been rolled over (or the log is closed) and every record in it has been released. markCommitted() keeps a
+// small marker file of the position up to which records are in the database, and recovery skips everything up
+// to it, so a restart cannot re-insert rows that were committed and deleted since.
+@Slf4j
+class WriteAheadLog implements Closeable {
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final String MARKER = "committed.pos";
+    private static final int MARKER_BYTES = 20;
+    private static final int HEADER_BYTES = 8;
+    static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final long POLL_MILLIS = 100;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+    private final Map<Long, Integer> outstanding = new HashMap<>();
+    private final List<Path> recovered;
+    private final Position recoveredMarker;
+    private final FileChannel marker;
+    private final Thread syncer;
+    private volatile boolean closed;
+    private volatile long segment;
+    // only touched by the syncer thread after construction
+    private FileChannel channel;
+    private long segmentPosition;
+
+    WriteAheadLog(Path directory, long segmentBytes) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.recovered = listSegments();
+        this.marker = FileChannel.open(directory.resolve(MARKER), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.recoveredMarker = readMarker();
+        long last = recovered.isEmpty() ? 0 : segmentNumber(recovered.get(recovered.size() - 1));
+        // numbers must keep growing past the marker, or new records would look committed after a restart
+        if (recoveredMarker != null) {
+            last = Math.max(last, recoveredMarker.segment());
+        }
+        openSegment(last + 1);
+        this.syncer = new Thread(this::syncLoop, "qrcode-wal-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+
+    // Uncommitted records left by the previous run, in append order. A torn or corrupt record ends its segment.
+    List<byte[]> recover() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (Path path : recovered) {
+            long number = segmentNumber(path);
+            if (recoveredMarker == null || number > recoveredMarker.segment()) {
+                readSegment(path, 0, records);
+            } else if (number == recoveredMarker.segment()) {
+                readSegment(path, recoveredMarker.offset(), records);
+            }
+        }
+        return records;
+    }
+
+    void deleteRecovered() throws IOException {
+        for (Path path : recovered) {
+            Files.deleteIfExists(path);
+        }
+        recovered.clear();
+    }
+
+    // The future is completed on the syncer thread in log order, so callbacks registered before the call see
+    // records in the order they were written.
+    void append(byte[] record, CompletableFuture<Position> future) {
+        if (record.length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Write-ahead log record exceeds " + MAX_RECORD_BYTES + " bytes");
+        }
+        if (closed) {
+            future.completeExceptionally(new IllegalStateException("Write-ahead log is closed"));
+        } else {
+            appends.add(new Append(record, future));
+        }
+    }
+
+    // Every record up to and including this position is in the database. Only called with growing positions.
+    synchronized void markCommitted(Position position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MARKER_BYTES);
+        buffer.putLong(position.segment()).putLong(position.offset());
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, 16);
+        buffer.putInt((int) crc.getValue()).flip();
+        while (buffer.hasRemaining()) {
+            marker.write(buffer, buffer.position());
+        }
+        marker.force(false);
+    }
+
+    synchronized void release(long segmentNumber) {
+        Integer remaining = outstanding.get(segmentNumber);
+        if (remaining == null) {
+            return;
+        }
+        if (remaining > 1) {
+            outstanding.put(segmentNumber, remaining - 1);
+            return;
+        }
+        outstanding.remove(segmentNumber);
+        if (segmentNumber != segment) {
+            delete(segmentNumber);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            syncer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Append append;
+        while ((append = appends.poll()) != null) {
+            append.future.completeExceptionally(new IllegalStateException("Write-ahead log is closed"));
+        }
+        try {
+            channel.close();
+            marker.close();
+        } catch (IOException e) {
+            log.warn("Could not close write-ahead log segment {}: {}", segment, e.getMessage());
+        }
+        synchronized (this) {
+            // a fully committed segment has nothing left to replay
+            if (!outstanding.containsKey(segment)) {
+                delete(segment);
+            }
+        }
+    }
+
+    private void syncLoop() {
+        List<Append> group = new ArrayList<>();
+        while (!closed || !appends.isEmpty()) {
+            try {
+                Append first = appends.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                appends.drainTo(group);
+                writeGroup(group);
+                group.forEach(append -> append.future.complete(append.position));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Write-ahead log append of {} records failed", group.size(), e);
+                group.forEach(append -> append.future.completeExceptionally(e));
+                // the failed write may have left a torn record; continue in a fresh segment behind it
+                rollQuietly();
+            }
+            group.clear();
+        }
+    }
+
+    private void writeGroup(List<Append> group) throws IOException {
+        int bytes = 0;
+        for (Append append : group) {
+            bytes += HEADER_BYTES + append.record.length;
+        }
+        if (segmentPosition > 0 && segmentPosition + bytes > segmentBytes) {
+            roll();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        CRC32C crc = new CRC32C();
+        for (Append append : group) {
+            crc.reset();
+            crc.update(append.record);
+            buffer.putInt(append.record.length).putInt((int) crc.getValue()).put(append.record);
+            append.position = new Position(segment, segmentPosition + buffer.position());
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        segmentPosition += bytes;
+        synchronized (this) {
+            outstanding.merge(segment, group.size(), Integer::sum);
+        }
+    }
+
+    private void roll() throws IOException {
+        long previous = segment;
+        channel.close();
+        openSegment(previous + 1);
+        synchronized (this) {
+            if (!outstanding.containsKey(previous)) {
+                delete(previous);
+            }
+        }
+    }
+
+    private void rollQuietly() {
+        try {
+            roll();
+        } catch (IOException e) {
+            log.error("Could not open a new write-ahead log segment", e);
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        channel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentPosition = 0;
+        segment = number;
+        // make the new directory entry durable too, otherwise a crash can lose the whole file
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.debug("Directory fsync not supported for {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void delete(long number) {
+        try {
+            Files.deleteIfExists(segmentPath(number));
+        } catch (IOException e) {
+            log.warn("Could not delete write-ahead log segment {}: {}", number, e.getMessage());
+        }
+    }
+
+    private void readSegment(Path path, long skipThrough, List<byte[]> records) throws IOException {
+        CRC32C crc = new CRC32C();
+        long offset = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] record;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        log.warn("Invalid record length {} in {}, ignoring the rest of the segment", length, path);
+                        return;
+                    }
+                    record = new byte[length];
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    return;
+                }
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Checksum mismatch in {}, ignoring the rest of the segment", path);
+                    return;
+                }
+                offset += HEADER_BYTES + length;
+                if (offset > skipThrough) {
+                    records.add(record);
+                }
+            }
+        }
+    }
+
+    private Position readMarker() throws IOException {
+        if (marker.size() < MARKER_BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(MARKER_BYTES);
+        while (buffer.hasRemaining()) {
+            if (marker.read(buffer, buffer.position()) < 0) {
+                return null;
+            }
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, 16);
+        if ((int) crc.getValue() != buffer.getInt(16)) {
+            log.warn("Ignoring corrupt commit marker in {}; all segments will be replayed", directory);
+            return null;
+        }
+        return new Position(buffer.getLong(0), buffer.getLong(8));
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            files.forEach(segments::add);
+        }
+        segments.sort(Comparator.comparingLong(WriteAheadLog::segmentNumber));
+        return segments;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%016d%s", PREFIX, number, SUFFIX));
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // offset is where the record ends in its segment
+    record Position(long segment, long offset) {
+    }
+
+    private static final class Append {
+        private final byte[] record;
+        private final CompletableFuture<Position> future;
+        private Position position;
+
+        private Append(byte[] record, CompletableFuture<Position> future) {
+            this.record = record;
+            this.future = future;
+        }
+    }
+}
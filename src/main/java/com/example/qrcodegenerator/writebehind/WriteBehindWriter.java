@@ -0,0 +1,316 @@
+package com.example.qrcodegenerator.writebehind;
+
+import com.example.qrcodegenerator.cache.SimpleCache;
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.model.QRCode;
+import com.example.qrcodegenerator.model.User;
+import com.example.qrcodegenerator.repository.QRCodeIdAllocator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Write-behind persistence for new QR codes. stage() takes an id from a pre-allocated block and appends the row
+// to the write-ahead log; callers respond once the log is fsync'd, and a background thread group-commits the
+// rows to the database in JDBC batches. Rows a crash left in the log are replayed at startup.
+@Slf4j
+@Component
+public class WriteBehindWriter {
+    private static final String INSERT_QRCODE_SQL =
+            "insert into qrcode (id, data) values (?, ?) on conflict (id) do nothing";
+    private static final String INSERT_LINK_SQL =
+            "insert into user_qr_codes (user_id, qr_code_id) values (?, ?) on conflict do nothing";
+    private static final String USER_QR_CODES_ROLE = User.class.getName() + ".qrCodes";
+    private static final long POLL_MILLIS = 100;
+    private static final long READ_WAIT_SECONDS = 30;
+
+    private final boolean enabled;
+    private final QRCodeProperties.WriteBehind settings;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final QRCodeIdAllocator idAllocator;
+    private final EntityManagerFactory entityManagerFactory;
+    private final SimpleCache<String, List<QRCode>> contentSearchCache;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Map<Long, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final Semaphore capacity;
+    private WriteAheadLog wal;
+    private Thread writer;
+    private volatile boolean running;
+    private long[] idBlock = new long[0];
+    private int idPosition;
+
+    public WriteBehindWriter(QRCodeProperties properties,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             QRCodeIdAllocator idAllocator,
+                             EntityManagerFactory entityManagerFactory,
+                             SimpleCache<String, List<QRCode>> contentSearchCache) {
+        this.settings = properties.getWriteBehind();
+        // the log cannot resolve content hashes, so deduplicating writes stay synchronous
+        this.enabled = settings.isEnabled() && !properties.getDedup().isEnabled();
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idAllocator = idAllocator;
+        this.entityManagerFactory = entityManagerFactory;
+        this.contentSearchCache = contentSearchCache;
+        this.capacity = new Semaphore(settings.getMaxPending());
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            if (settings.isEnabled()) {
+                log.info("Write-behind persistence is off because qrcode.dedup.enabled is set");
+            }
+            return;
+        }
+        wal = new WriteAheadLog(Path.of(settings.getDirectory()), settings.getSegmentSize().toBytes());
+        replay();
+        running = true;
+        writer = new Thread(this::writeLoop, "qrcode-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // Returns once the row has an id; call awaitDurable before telling the client it was saved.
+    public PendingWrite stage(String data, Long userId) {
+        if (!enabled) {
+            throw new IllegalStateException("Write-behind persistence is disabled");
+        }
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for write-behind capacity", e);
+        }
+        PendingWrite row;
+        try {
+            row = new PendingWrite(nextId(), data, userId);
+            pending.put(row.getId(), row);
+            // registered before appending so rows are queued in log order, which markCommitted relies on
+            CompletableFuture<WriteAheadLog.Position> appended = new CompletableFuture<>();
+            appended.whenComplete((position, error) -> {
+                if (error != null) {
+                    discard(row, error);
+                } else {
+                    row.position = position;
+                    row.durable.complete(null);
+                    queue.add(row);
+                }
+            });
+            wal.append(row.encode(), appended);
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+        return row;
+    }
+
+    public void awaitDurable(Collection<PendingWrite> rows) {
+        for (PendingWrite row : rows) {
+            try {
+                row.durable.join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException("Could not append QR code to the write-ahead log", e.getCause());
+            }
+        }
+    }
+
+    // Lets reads of a just-created id see the row instead of a 404 while it is still queued.
+    public void awaitCommitted(Long id) {
+        PendingWrite row = id != null ? pending.get(id) : null;
+        if (row == null) {
+            return;
+        }
+        try {
+            row.committed.get(READ_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // the append failed, so the row never existed
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("QR code " + id + " has not been written to the database yet");
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled || wal == null) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // anything not committed by now is still in the log and is replayed on the next start
+        wal.close();
+    }
+
+    private void replay() throws IOException {
+        List<byte[]> records = wal.recover();
+        if (!records.isEmpty()) {
+            List<PendingWrite> rows = new ArrayList<>(records.size());
+            for (byte[] record : records) {
+                rows.add(PendingWrite.decode(record));
+            }
+            for (int from = 0; from < rows.size(); from += settings.getBatchSize()) {
+                commit(rows.subList(from, Math.min(rows.size(), from + settings.getBatchSize())));
+            }
+            evictCaches(rows);
+            log.info("Replayed {} QR codes from the write-ahead log", rows.size());
+        }
+        wal.deleteRecovered();
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>(settings.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    PendingWrite first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, settings.getBatchSize() - 1);
+                }
+                commit(batch);
+                markCommitted(batch.get(batch.size() - 1));
+                evictCaches(batch);
+                batch.forEach(this::complete);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Write-behind batch of {} QR codes failed, retrying in {}", batch.size(),
+                        settings.getRetryBackoff(), e);
+                if (!running || !sleep(settings.getRetryBackoff().toMillis())) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite> rows) {
+        try {
+            insert(rows);
+        } catch (DataIntegrityViolationException e) {
+            // one bad row, typically a link to a user deleted in the meantime, must not hold back the rest
+            for (PendingWrite row : rows) {
+                try {
+                    insert(List.of(row));
+                } catch (DataIntegrityViolationException rowFailure) {
+                    log.error("Dropping link of QR code {} to user {}: {}", row.getId(), row.getUserId(),
+                            rowFailure.getMostSpecificCause().getMessage());
+                    insert(List.of(row.withoutUser()));
+                }
+            }
+        }
+    }
+
+    private void insert(List<PendingWrite> rows) {
+        List<PendingWrite> linked = rows.stream().filter(row -> row.getUserId() != null).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_QRCODE_SQL, rows, rows.size(), (statement, row) -> {
+                statement.setLong(1, row.getId());
+                statement.setString(2, row.getData());
+            });
+            if (!linked.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_LINK_SQL, linked, linked.size(), (statement, row) -> {
+                    statement.setLong(1, row.getUserId());
+                    statement.setLong(2, row.getId());
+                });
+            }
+        });
+    }
+
+    private void markCommitted(PendingWrite last) {
+        try {
+            wal.markCommitted(last.position);
+        } catch (IOException e) {
+            // the batch is retried; inserting it again is a no-op
+            throw new UncheckedIOException("Could not record committed write-ahead log position", e);
+        }
+    }
+
+    private void evictCaches(List<PendingWrite> rows) {
+        // rows written with plain JDBC are invisible to Hibernate's query and collection caches
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictQueryRegions();
+        rows.stream()
+                .map(PendingWrite::getUserId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(userId -> cache.evictCollectionData(USER_QR_CODES_ROLE, userId));
+        contentSearchCache.clear();
+    }
+
+    private void complete(PendingWrite row) {
+        pending.remove(row.getId());
+        capacity.release();
+        wal.release(row.position.segment());
+        row.committed.complete(null);
+    }
+
+    private void discard(PendingWrite row, Throwable error) {
+        pending.remove(row.getId());
+        capacity.release();
+        row.durable.completeExceptionally(error);
+        row.committed.completeExceptionally(error);
+    }
+
+    private synchronized long nextId() {
+        if (idPosition == idBlock.length) {
+            idBlock = idAllocator.allocate(settings.getIdBlockSize());
+            idPosition = 0;
+        }
+        return idBlock[idPosition++];
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -19,12 +19,10 @@ document.addEventListener('DOMContentLoaded', () => {
     });
 
     function fetchQRCodes(userIds) {
-        Promise.all(userIds.map(userId =>
-            fetch(`/api/qrcodes/user/${userId}`).then(response => response.json())
-        )).then(results => {
-            const allQRCodes = [].concat(...results);
-            renderQRCodes(allQRCodes);
-        }).catch(error => console.error('Error fetching QR codes:', error));
+        fetch(`/api/qrcodes/users?userIds=${userIds.map(encodeURIComponent).join(',')}`)
+            .then(response => response.json())
+            .then(qrcodes => renderQRCodes(qrcodes))
+            .catch(error => console.error('Error fetching QR codes:', error));
     }
 
     function renderQRCodes(qrcodes) {
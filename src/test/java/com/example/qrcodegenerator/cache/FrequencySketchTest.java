@@ -0,0 +1,75 @@
+package com.example.qrcodegenerator.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+    @Test
+    void estimatesFrequencyOfIncrementedKeys() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        for (int i = 0; i < 5; i++) {
+            sketch.increment(1L);
+        }
+        sketch.increment(2L);
+
+        assertEquals(5, sketch.frequency(1L));
+        assertEquals(1, sketch.frequency(2L));
+        assertEquals(0, sketch.frequency(3L));
+    }
+
+    @Test
+    void neverUnderestimatesAmongManyKeys() {
+        FrequencySketch sketch = new FrequencySketch(4096);
+        for (long key = 0; key < 1000; key++) {
+            for (int i = 0; i <= key % 7; i++) {
+                sketch.increment(key * 0x9e3779b97f4a7c15L);
+            }
+        }
+
+        for (long key = 0; key < 1000; key++) {
+            assertTrue(sketch.frequency(key * 0x9e3779b97f4a7c15L) >= key % 7 + 1, "key " + key);
+        }
+    }
+
+    @Test
+    void saturatesAtMaximumCount() {
+        FrequencySketch sketch = new FrequencySketch(1 << 16);
+        for (int i = 0; i < 300; i++) {
+            sketch.increment(42L);
+        }
+
+        assertEquals(255, sketch.frequency(42L));
+    }
+
+    @Test
+    void ageHalvesEveryCounter() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        for (int i = 0; i < 9; i++) {
+            sketch.increment(1L);
+        }
+        sketch.increment(2L);
+
+        sketch.age();
+
+        assertEquals(4, sketch.frequency(1L));
+        assertEquals(0, sketch.frequency(2L));
+    }
+
+    @Test
+    void agesItselfAfterTenAdditionsPerTableSlot() {
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(sketch.increment(1L));
+        }
+        int additions = 10;
+        boolean aged = false;
+        while (!aged) {
+            aged = sketch.increment(1000L + additions++);
+        }
+
+        assertEquals(640, additions);
+        assertTrue(sketch.frequency(1L) < 10);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.qrcodegenerator.cache;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotnessTrackerTest {
+
+    @Test
+    void admitsOnlyRepeatedKeys() {
+        HotnessTracker tracker = tracker(16);
+
+        tracker.recordSearch("once");
+        tracker.recordSearch("twice");
+        tracker.recordSearch("twice");
+
+        assertFalse(tracker.admitSearch("once"));
+        assertTrue(tracker.admitSearch("twice"));
+        assertFalse(tracker.admitSearch("never"));
+    }
+
+    @Test
+    void heavyHittersEvictLeastFrequentCandidate() {
+        HotnessTracker tracker = tracker(2);
+        record(tracker, "a", 3);
+        record(tracker, "b", 2);
+        record(tracker, "c", 1);
+
+        assertEquals(List.of("a", "b"), keys(tracker.topSearches(10)));
+
+        record(tracker, "c", 4);
+
+        assertEquals(List.of("c", "a"), keys(tracker.topSearches(10)));
+        assertEquals(5, tracker.topSearches(1).get(0).estimate());
+    }
+
+    @Test
+    void topIsLimitedAndOrderedByEstimate() {
+        HotnessTracker tracker = tracker(16);
+        record(tracker, "x", 1);
+        record(tracker, "y", 3);
+        record(tracker, "z", 2);
+
+        assertEquals(List.of("y", "z"), keys(tracker.topSearches(2)));
+        assertTrue(tracker.topRenders(10).isEmpty());
+    }
+
+    @Test
+    void concurrentRecordingIsDrainedIntoTheSketch() throws InterruptedException {
+        HotnessTracker tracker = tracker(16);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    tracker.recordSearch("hot");
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // events may be dropped when a buffer is full, but the key is still clearly hot
+        assertTrue(tracker.admitSearch("hot"));
+        assertEquals(List.of("hot"), keys(tracker.topSearches(10)));
+    }
+
+    @Test
+    void disabledTrackerAdmitsEverything() {
+        QRCodeProperties properties = new QRCodeProperties();
+        properties.getHotness().setEnabled(false);
+        HotnessTracker tracker = new HotnessTracker(properties);
+
+        tracker.recordSearch("a");
+
+        assertTrue(tracker.admitSearch("a"));
+        assertTrue(tracker.topSearches(10).isEmpty());
+    }
+
+    private static HotnessTracker tracker(int trackedHitters) {
+        QRCodeProperties properties = new QRCodeProperties();
+        properties.getHotness().setTrackedHitters(trackedHitters);
+        return new HotnessTracker(properties);
+    }
+
+    private static void record(HotnessTracker tracker, String term, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.recordSearch(term);
+        }
+    }
+
+    private static List<String> keys(List<HotnessTracker.HeavyHitter<String>> hitters) {
+        return hitters.stream().map(HotnessTracker.HeavyHitter::key).toList();
+    }
+}
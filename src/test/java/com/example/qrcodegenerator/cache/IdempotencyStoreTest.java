@@ -0,0 +1,228 @@
+package com.example.qrcodegenerator.cache;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.exception.IdempotencyKeyReuseException;
+import com.example.qrcodegenerator.exception.IdempotentRequestInProgressException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+    private final MutableClock clock = new MutableClock();
+    private final QRCodeProperties properties = new QRCodeProperties();
+
+    @Test
+    void replaysFirstResponseForSameKeyAndPayload() {
+        IdempotencyStore store = new IdempotencyStore(clock, properties);
+        AtomicInteger calls = new AtomicInteger();
+
+        ResponseEntity<String> first = store.execute("k", "create", "fp",
+                () -> created("id-" + calls.incrementAndGet()));
+        ResponseEntity<String> retry = store.execute("k", "create", "fp",
+                () -> created("id-" + calls.incrementAndGet()));
+
+        assertEquals(1, calls.get());
+        assertEquals("id-1", retry.getBody());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertNull(first.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void scopesKeysByOperationAndSkipsRequestsWithoutKey() {
+        IdempotencyStore store = new IdempotencyStore(clock, properties);
+        AtomicInteger calls = new AtomicInteger();
+
+        store.execute("k", "create", "fp", () -> created("a" + calls.incrementAndGet()));
+        store.execute("k", "bulk", "fp", () -> created("b" + calls.incrementAndGet()));
+        store.execute(null, "create", "fp", () -> created("c" + calls.incrementAndGet()));
+        store.execute(null, "create", "fp", () -> created("d" + calls.incrementAndGet()));
+
+        assertEquals(4, calls.get());
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void rejectsSameKeyWithDifferentPayload() {
+        IdempotencyStore store = new IdempotencyStore(clock, properties);
+        store.execute("k", "create", "fp-1", () -> created("first"));
+
+        assertThrows(IdempotencyKeyReuseException.class,
+                () -> store.execute("k", "create", "fp-2", () -> created("second")));
+    }
+
+    @Test
+    void retryInFlightWaitsForFirstResponse() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(clock, properties);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<String>> first = CompletableFuture.supplyAsync(() ->
+                store.execute("k", "create", "fp", () -> {
+                    started.countDown();
+                    await(finish);
+                    return created("first");
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<ResponseEntity<String>> retry = CompletableFuture.supplyAsync(() ->
+                store.execute("k", "create", "fp", () -> created("second")));
+        // give the retry time to attach to the running request before it finishes
+        Thread.sleep(100);
+        assertFalse(retry.isDone());
+        finish.countDown();
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("first", retry.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("true", retry.get().getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void retryGivesUpAfterWaitTimeout() throws Exception {
+        properties.getIdempotency().setWaitTimeout(Duration.ofMillis(50));
+        IdempotencyStore store = new IdempotencyStore(clock, properties);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<String>> first = CompletableFuture.supplyAsync(() ->
+                store.execute("k", "create", "fp", () -> {
+                    started.countDown();
+                    await(finish);
+                    return created("first");
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(IdempotentRequestInProgressException.class,
+                () -> store.execute("k", "create", "fp", () -> created("second")));
+        finish.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS).getBody());
+    }
+
+    @Test
+    void forgetsFailedRequestsSoTheyCanBeRetried() {
+        IdempotencyStore store = new IdempotencyStore(clock, properties);
+
+        assertThrows(IllegalStateException.class, () -> store.execute("k", "create", "fp", () -> {
+            throw new IllegalStateException("database down");
+        }));
+        assertEquals(0, store.size());
+
+        assertEquals("retried", store.execute("k", "create", "fp", () -> created("retried")).getBody());
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        properties.getIdempotency().setTtl(Duration.ofMinutes(5));
+        IdempotencyStore store = new IdempotencyStore(clock, properties);
+        store.execute("k", "create", "fp", () -> created("first"));
+
+        clock.advance(Duration.ofMinutes(5));
+
+        ResponseEntity<String> after = store.execute("k", "create", "fp", () -> created("second"));
+        assertEquals("second", after.getBody());
+        assertNull(after.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void evictsOldestEntriesBeyondMaxEntries() {
+        properties.getIdempotency().setMaxEntries(2);
+        IdempotencyStore store = new IdempotencyStore(clock, properties);
+        store.execute("a", "create", "fp", () -> created("a"));
+        store.execute("b", "create", "fp", () -> created("b"));
+        store.execute("c", "create", "fp", () -> created("c"));
+
+        assertEquals(2, store.size());
+        assertEquals("a2", store.execute("a", "create", "fp", () -> created("a2")).getBody());
+        assertEquals("c", store.execute("c", "create", "fp", () -> created("c2")).getBody());
+    }
+
+    @Test
+    void keepsInFlightRequestWhenOverflowingOrExpiring() throws Exception {
+        properties.getIdempotency().setMaxEntries(2);
+        properties.getIdempotency().setTtl(Duration.ofMinutes(5));
+        IdempotencyStore store = new IdempotencyStore(clock, properties);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<String>> first = CompletableFuture.supplyAsync(() ->
+                store.execute("a", "create", "fp", () -> {
+                    calls.incrementAndGet();
+                    started.countDown();
+                    await(finish);
+                    return created("a");
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        clock.advance(Duration.ofMinutes(10));
+        for (String key : new String[]{"b", "c", "d"}) {
+            store.execute(key, "create", "fp", () -> created(key));
+        }
+        assertEquals(2, store.size());
+
+        CompletableFuture<ResponseEntity<String>> retry = CompletableFuture.supplyAsync(() ->
+                store.execute("a", "create", "fp", () -> created("a" + calls.incrementAndGet())));
+        // give the retry time to attach to the running request before it finishes
+        Thread.sleep(100);
+        assertFalse(retry.isDone());
+        finish.countDown();
+
+        assertEquals("a", first.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("a", retry.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals(1, calls.get());
+        assertEquals("d", store.execute("d", "create", "fp", () -> created("d2")).getBody());
+    }
+
+    @Test
+    void rejectsBlankOrOverlongKeys() {
+        IdempotencyStore store = new IdempotencyStore(clock, properties);
+
+        assertThrows(IllegalArgumentException.class, () -> store.execute(" ", "create", "fp", () -> created("x")));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.execute("k".repeat(256), "create", "fp", () -> created("x")));
+    }
+
+    private static ResponseEntity<String> created(String body) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(body);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.qrcodegenerator.cache;
+
+import com.example.qrcodegenerator.render.PngSink;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapImageArenaTest {
+    private static final int SLAB_BYTES = 100;
+
+    @Test
+    void evictsEveryIndexEntryOfASlabTogether() {
+        OffHeapImageArena arena = new OffHeapImageArena(2 * SLAB_BYTES, SLAB_BYTES);
+        arena.put("a1", image(1, 40));
+        arena.put("a2", image(2, 40));
+        arena.put("b", image(3, 90));
+
+        arena.put("c", image(4, 90));
+
+        assertNull(arena.get("a1"));
+        assertNull(arena.get("a2"));
+        assertArrayEquals(image(3, 90), arena.get("b"));
+        assertArrayEquals(image(4, 90), arena.get("c"));
+        assertEquals(2, arena.size());
+    }
+
+    @Test
+    void rejectsImageLargerThanASlab() {
+        OffHeapImageArena arena = new OffHeapImageArena(2 * SLAB_BYTES, SLAB_BYTES);
+
+        arena.put("big", image(1, SLAB_BYTES + 1));
+
+        assertNull(arena.get("big"));
+        assertEquals(0, arena.size());
+    }
+
+    @Test
+    void skipsPinnedSlabWhenWrapping() throws Exception {
+        OffHeapImageArena arena = new OffHeapImageArena(3 * SLAB_BYTES, SLAB_BYTES);
+        arena.put("a", image(1, 90));
+        arena.put("b", image(2, 90));
+        arena.put("c", image(3, 90));
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        CompletableFuture<Boolean> reader = CompletableFuture.supplyAsync(() -> {
+            try {
+                return arena.writeTo("a", blockingSink(streamed, streaming, release));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(streaming.await(5, TimeUnit.SECONDS));
+
+        // the ring wraps onto the pinned slab of "a" and must take the slab of "b" instead
+        arena.put("d", image(4, 90));
+        release.countDown();
+
+        assertTrue(reader.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(image(1, 90), streamed.toByteArray());
+        assertArrayEquals(image(1, 90), arena.get("a"));
+        assertNull(arena.get("b"));
+        assertArrayEquals(image(4, 90), arena.get("d"));
+    }
+
+    @Test
+    void dropsWriteOnlyWhenEveryOtherSlabIsPinned() throws Exception {
+        OffHeapImageArena arena = new OffHeapImageArena(2 * SLAB_BYTES, SLAB_BYTES);
+        arena.put("a", image(1, 90));
+        arena.put("b", image(2, 90));
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> reader = CompletableFuture.supplyAsync(() -> {
+            try {
+                return arena.writeTo("a", blockingSink(new ByteArrayOutputStream(), streaming, release));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(streaming.await(5, TimeUnit.SECONDS));
+
+        arena.put("c", image(3, 90));
+        release.countDown();
+
+        assertTrue(reader.get(5, TimeUnit.SECONDS));
+        assertNull(arena.get("c"));
+        assertArrayEquals(image(1, 90), arena.get("a"));
+        assertArrayEquals(image(2, 90), arena.get("b"));
+    }
+
+    @Test
+    void readsRacingSlabRecycleNeverSeeOtherImages() throws Exception {
+        OffHeapImageArena arena = new OffHeapImageArena(4 * SLAB_BYTES, SLAB_BYTES);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                while (running.get() && failure.get() == null) {
+                    for (int i = 0; i < 64; i++) {
+                        byte[] image = arena.get("k" + i);
+                        if (image != null && !Arrays.equals(image(i, 30), image)) {
+                            failure.set("k" + i + " read " + Arrays.toString(image));
+                        }
+                    }
+                }
+            });
+            readers[r].start();
+        }
+
+        for (int round = 0; round < 2000; round++) {
+            for (int i = 0; i < 64; i++) {
+                arena.put("k" + i, image(i, 30));
+            }
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+    }
+
+    private static PngSink blockingSink(ByteArrayOutputStream out, CountDownLatch streaming,
+                                        CountDownLatch release) {
+        return new PngSink() {
+            @Override
+            public void write(byte[] png, int offset, int length) {
+                out.write(png, offset, length);
+            }
+
+            @Override
+            public void write(ByteBuffer png) {
+                streaming.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] copy = new byte[png.remaining()];
+                png.get(copy);
+                out.write(copy, 0, copy.length);
+            }
+        };
+    }
+
+    private static byte[] image(int seed, int length) {
+        byte[] image = new byte[length];
+        for (int i = 0; i < length; i++) {
+            image[i] = (byte) (seed * 31 + i);
+        }
+        return image;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.qrcodegenerator.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentFileStoreTest {
+    private static final int SEGMENT_BYTES = 4096;
+    private static final int MAX_SEGMENTS = 2;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compactionReusesSegmentFilesInsteadOfDeletingThem() throws Exception {
+        try (SegmentFileStore store = new SegmentFileStore(directory, SEGMENT_BYTES, MAX_SEGMENTS)) {
+            store.put(key(0), image(0));
+            for (int i = 1; i < 60; i++) {
+                // read between compactions, so it is copied forward every time its segment is compacted
+                assertArrayEquals(image(0), store.get(key(0)));
+                store.put(key(i), image(i));
+                awaitCompaction(store);
+                assertTrue(segmentFiles() <= MAX_SEGMENTS + 1, "segment files after " + i + " images");
+            }
+
+            assertArrayEquals(image(0), store.get(key(0)));
+            assertNull(store.get(key(1)));
+        }
+    }
+
+    @Test
+    void recoversOnlyCurrentRecordsFromRecycledSegments() throws Exception {
+        try (SegmentFileStore store = new SegmentFileStore(directory, SEGMENT_BYTES, MAX_SEGMENTS)) {
+            for (int i = 0; i < 60; i++) {
+                store.put(key(i), image(i));
+                awaitCompaction(store);
+            }
+        }
+
+        try (SegmentFileStore reopened = new SegmentFileStore(directory, SEGMENT_BYTES, MAX_SEGMENTS)) {
+            assertArrayEquals(image(59), reopened.get(key(59)));
+            assertNull(reopened.get(key(0)));
+            assertTrue(reopened.size() <= (MAX_SEGMENTS + 1) * (SEGMENT_BYTES / 1000));
+        }
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    // compaction runs on its own thread; the store is back under its limit once it has finished
+    private static void awaitCompaction(SegmentFileStore store) throws InterruptedException {
+        for (int i = 0; i < 200 && store.segmentCount() > MAX_SEGMENTS; i++) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static String key(int i) {
+        byte[] key = new byte[32];
+        key[0] = (byte) i;
+        key[31] = 1;
+        return HexFormat.of().formatHex(key);
+    }
+
+    private static byte[] image(int i) {
+        byte[] image = new byte[1000];
+        Arrays.fill(image, (byte) i);
+        return image;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.qrcodegenerator.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "value";
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 1; i < CALLERS; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            awaitWaiting(CALLERS - 1);
+            release.countDown();
+
+            assertEquals("value", leader.get(5, TimeUnit.SECONDS));
+            for (Future<String> follower : followers) {
+                assertEquals("value", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failureReachesEveryWaiter() throws Exception {
+        IllegalStateException failure = new IllegalStateException("load failed");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                loading.countDown();
+                await(release);
+                throw failure;
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 1; i < CALLERS; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute("key", () -> "other")));
+            }
+            awaitWaiting(CALLERS - 1);
+            release.countDown();
+
+            assertSame(failure, failureOf(leader));
+            for (Future<String> follower : followers) {
+                assertSame(failure, failureOf(follower));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void keyIsReleasedAfterCompletion() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("1", singleFlight.execute("key", () -> String.valueOf(loads.incrementAndGet())));
+        assertEquals("2", singleFlight.execute("key", () -> String.valueOf(loads.incrementAndGet())));
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("load failed");
+        }));
+        assertEquals("4", singleFlight.execute("key", () -> String.valueOf(loads.addAndGet(2))));
+    }
+
+    @Test
+    void differentKeysLoadIndependently() {
+        // a load for one key may load another key without waiting on itself
+        String value = singleFlight.execute("a", () -> "a" + singleFlight.execute("b", () -> "b"));
+
+        assertEquals("ab", value);
+    }
+
+    private static Throwable failureOf(Future<String> future) throws Exception {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+
+    // Waits until the given number of threads are parked joining the in-flight load.
+    private static void awaitWaiting(int waiters) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            long waiting = Thread.getAllStackTraces().entrySet().stream()
+                    .filter(entry -> entry.getKey().getState() == Thread.State.WAITING)
+                    .map(Map.Entry::getValue)
+                    .filter(SingleFlightTest::isJoining)
+                    .count();
+            if (waiting >= waiters) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("callers did not start waiting on the in-flight load");
+    }
+
+    private static boolean isJoining(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().equals(SingleFlight.class.getName()) && frame.getMethodName().equals("await")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
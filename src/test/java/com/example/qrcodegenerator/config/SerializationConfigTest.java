@@ -0,0 +1,110 @@
+package com.example.qrcodegenerator.config;
+
+import com.example.qrcodegenerator.dto.QRCodeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class SerializationConfigTest {
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    private static final QRCodeResponse RESPONSE = QRCodeResponse.builder()
+            .id(42L)
+            .data("https://example.com/?q=\"smile\"&lang=ünï")
+            .imageUrl("data:image/png;base64,iVBORw0KGgo=")
+            .size("200x200")
+            .colors("#000000/#FFFFFF")
+            .createdAt(LocalDateTime.of(2024, 5, 15, 14, 30, 5))
+            .userId(7L)
+            .build();
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<HttpMessageConverter<?>> converters;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        converters = new ArrayList<>();
+        converters.add(new MappingJackson2HttpMessageConverter(objectMapper));
+        new SerializationConfig(objectMapper).extendMessageConverters(converters);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ResponseController())
+                .setMessageConverters(converters.toArray(HttpMessageConverter[]::new))
+                .build();
+    }
+
+    @Test
+    void binaryConvertersComeAfterJson() {
+        assertEquals(3, converters.size());
+        assertTrue(converters.get(0).canWrite(QRCodeResponse.class, MediaType.ALL));
+        assertFalse(converters.get(1).canWrite(QRCodeResponse.class, MediaType.APPLICATION_JSON));
+        assertFalse(converters.get(2).canWrite(QRCodeResponse.class, MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void wildcardAcceptStaysJson() throws Exception {
+        MvcResult result = request(MediaType.ALL);
+
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(contentType(result)));
+        assertEquals(RESPONSE, objectMapper.readValue(result.getResponse().getContentAsByteArray(),
+                QRCodeResponse.class));
+    }
+
+    @Test
+    void cborAcceptRoundTrips() throws Exception {
+        MvcResult result = request(MediaType.APPLICATION_CBOR);
+
+        assertEquals(MediaType.APPLICATION_CBOR, contentType(result));
+        ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+        assertEquals(RESPONSE, cborMapper.readValue(result.getResponse().getContentAsByteArray(),
+                QRCodeResponse.class));
+    }
+
+    @Test
+    void smileAcceptRoundTrips() throws Exception {
+        MvcResult result = request(SMILE);
+
+        assertEquals(SMILE, contentType(result));
+        byte[] body = result.getResponse().getContentAsByteArray();
+        // Smile documents start with the ":)\n" header
+        assertEquals(':', body[0]);
+        assertEquals(')', body[1]);
+        ObjectMapper smileMapper = objectMapper.copyWith(new SmileFactory());
+        assertEquals(RESPONSE, smileMapper.readValue(body, QRCodeResponse.class));
+    }
+
+    private MvcResult request(MediaType accept) throws Exception {
+        MvcResult result = mockMvc.perform(get("/response").accept(accept)).andReturn();
+        assertEquals(200, result.getResponse().getStatus());
+        return result;
+    }
+
+    private static MediaType contentType(MvcResult result) {
+        return MediaType.parseMediaType(result.getResponse().getContentType());
+    }
+
+    @RestController
+    static class ResponseController {
+        @GetMapping("/response")
+        QRCodeResponse response() {
+            return RESPONSE;
+        }
+    }
+}
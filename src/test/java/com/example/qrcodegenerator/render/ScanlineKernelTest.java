@@ -0,0 +1,78 @@
+package com.example.qrcodegenerator.render;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Checks the kernel against a one-pixel-at-a-time expansion across module sizes, paddings and word boundaries.
+class ScanlineKernelTest {
+    private static final int ON = 0xFF123456;
+    private static final int OFF = 0xFFFEDCBA;
+
+    @Test
+    void expandBitsMatchesPerPixelExpansion() {
+        Random random = new Random(42);
+        for (int multiple = 1; multiple <= 40; multiple++) {
+            for (int leftPadding : new int[]{0, 1, 7, 8, 63, 64, 65, 130}) {
+                byte[] row = randomRow(random, 21 + random.nextInt(157));
+                int width = leftPadding * 2 + row.length * multiple + random.nextInt(9);
+                int scanlineLength = ((width + 7) >>> 3) + 1;
+                byte[] expected = new byte[scanlineLength];
+                for (int x = 0; x < row.length * multiple; x++) {
+                    if (row[x / multiple] == 1) {
+                        int pixel = leftPadding + x;
+                        expected[1 + (pixel >>> 3)] |= (byte) (0x80 >>> (pixel & 7));
+                    }
+                }
+                // stale bytes from a previous row must not leak into this one
+                byte[] scanline = new byte[scanlineLength + 16];
+                Arrays.fill(scanline, (byte) 0x5A);
+
+                ScanlineKernel.expandBits(row, row.length, multiple, leftPadding, scanline, scanlineLength);
+
+                assertArrayEquals(expected, Arrays.copyOf(scanline, scanlineLength),
+                        "multiple " + multiple + ", left padding " + leftPadding);
+            }
+        }
+    }
+
+    @Test
+    void expandRgbMatchesPerPixelExpansion() {
+        Random random = new Random(7);
+        for (int multiple = 1; multiple <= 24; multiple++) {
+            int leftPadding = random.nextInt(40);
+            byte[] row = randomRow(random, 21 + random.nextInt(60));
+            int width = leftPadding * 2 + row.length * multiple;
+            int scanlineLength = width * 3 + 1;
+            byte[] background = new byte[scanlineLength];
+            ScanlineKernel.fillRgb(background, 0, width, OFF);
+            byte[] expected = new byte[scanlineLength];
+            for (int x = 0; x < width; x++) {
+                int module = (x - leftPadding) / multiple;
+                boolean dark = x >= leftPadding && module < row.length && row[module] == 1;
+                int rgb = dark ? ON : OFF;
+                expected[1 + x * 3] = (byte) (rgb >>> 16);
+                expected[2 + x * 3] = (byte) (rgb >>> 8);
+                expected[3 + x * 3] = (byte) rgb;
+            }
+            byte[] scanline = new byte[scanlineLength];
+
+            ScanlineKernel.expandRgb(row, row.length, multiple, leftPadding, ON, background, scanline, scanlineLength);
+
+            assertArrayEquals(expected, scanline, "multiple " + multiple);
+        }
+    }
+
+    private static byte[] randomRow(Random random, int length) {
+        byte[] row = new byte[length];
+        for (int i = 0; i < length; i++) {
+            row[i] = (byte) (random.nextInt(3) == 0 ? 0 : random.nextInt(2));
+        }
+        // long equal runs cross several 64-pixel words
+        Arrays.fill(row, 0, Math.min(7, length), (byte) 1);
+        return row;
+    }
+}
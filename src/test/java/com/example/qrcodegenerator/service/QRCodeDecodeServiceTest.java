@@ -0,0 +1,172 @@
+package com.example.qrcodegenerator.service;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.DecodeReport;
+import com.example.qrcodegenerator.dto.DecodeResult;
+import com.example.qrcodegenerator.model.QRCode;
+import com.example.qrcodegenerator.render.QRCodeRenderer;
+import com.example.qrcodegenerator.render.RenderSpec;
+import com.example.qrcodegenerator.repository.QRCodeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class QRCodeDecodeServiceTest {
+    private final QRCodeRenderer renderer = new QRCodeRenderer();
+    private QRCodeRepository qrCodeRepository;
+    private QRCodeProperties properties;
+    private QRCodeDecodeService decodeService;
+
+    @BeforeEach
+    void setUp() {
+        qrCodeRepository = mock(QRCodeRepository.class);
+        properties = new QRCodeProperties();
+        properties.getDecode().setThreads(2);
+        decodeService = new QRCodeDecodeService(qrCodeRepository, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        decodeService.shutdown();
+    }
+
+    @Test
+    void decodesUploadedImages() throws IOException {
+        DecodeReport report = decodeService.decode(List.of(
+                new MockMultipartFile("files", "a.png", "image/png", png("https://example.com/a")),
+                new MockMultipartFile("files", "b.png", "image/png", png("https://example.com/b"))), false);
+
+        assertEquals(2, report.getImages());
+        assertEquals(2, report.getDecoded());
+        assertEquals("https://example.com/a", report.getResults().get(0).getText());
+        assertEquals("https://example.com/b", report.getResults().get(1).getText());
+        verifyNoInteractions(qrCodeRepository);
+    }
+
+    @Test
+    void decodesZipEntriesAndVerifiesAgainstStoredData() throws IOException {
+        QRCode stored = new QRCode();
+        stored.setId(42L);
+        stored.setData("https://example.com/42");
+        when(qrCodeRepository.findAllById(any())).thenReturn(List.of(stored));
+        byte[] zip = zip(Map.of("run/42.png", png("https://example.com/42"),
+                "__MACOSX/._42.png", new byte[]{1, 2, 3}));
+
+        DecodeReport report = decodeService.decodeZip(new ByteArrayInputStream(zip), true);
+
+        assertEquals(1, report.getImages());
+        assertEquals(1, report.getMatched());
+        assertEquals(42L, report.getResults().get(0).getQrCodeId());
+    }
+
+    @Test
+    void unreadableImageFailsOnlyThatImage() throws IOException {
+        DecodeReport report = decodeService.decode(List.of(
+                new MockMultipartFile("files", "good.png", "image/png", png("https://example.com/good")),
+                new MockMultipartFile("files", "bad.png", "image/png", "not an image".getBytes())), false);
+
+        assertEquals(2, report.getImages());
+        assertEquals(1, report.getDecoded());
+        DecodeResult bad = report.getResults().get(1);
+        assertFalse(bad.isDecoded());
+        assertNotNull(bad.getError());
+    }
+
+    @Test
+    void rejectsZipEntryAboveImageLimit() throws IOException {
+        properties.getDecode().setMaxImageSize(DataSize.ofKilobytes(64));
+        decodeService.shutdown();
+        decodeService = new QRCodeDecodeService(qrCodeRepository, properties);
+        // compresses to a few hundred bytes but inflates to 10 MB
+        byte[] zip = zip(Map.of("bomb.png", new byte[10 * 1024 * 1024]));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> decodeService.decodeZip(new ByteArrayInputStream(zip), false));
+        assertTrue(e.getMessage().contains("bomb.png"));
+    }
+
+    @Test
+    void rejectsRequestAboveTotalLimit() throws IOException {
+        byte[] image = png("https://example.com/a");
+        properties.getDecode().setMaxRequestSize(DataSize.ofBytes(image.length * 2L + 1));
+        decodeService.shutdown();
+        decodeService = new QRCodeDecodeService(qrCodeRepository, properties);
+        byte[] zip = zip(Map.of("1.png", image, "2.png", image, "3.png", image));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> decodeService.decodeZip(new ByteArrayInputStream(zip), false));
+    }
+
+    @Test
+    void oversizedImageHeaderFailsOnlyThatImage() throws IOException {
+        // a few hundred bytes that declare a 50000x50000 image
+        byte[] huge = withDimensions(png("https://example.com/huge"), 50_000, 50_000);
+
+        DecodeReport report = decodeService.decode(List.of(
+                new MockMultipartFile("files", "good.png", "image/png", png("https://example.com/good")),
+                new MockMultipartFile("files", "huge.png", "image/png", huge)), false);
+
+        assertEquals(1, report.getDecoded());
+        DecodeResult result = report.getResults().get(1);
+        assertFalse(result.isDecoded());
+        assertTrue(result.getError().contains("50000x50000"));
+    }
+
+    @Test
+    void rejectsImageAbovePixelLimit() throws IOException {
+        properties.getDecode().setMaxPixels(199L * 199);
+        decodeService.shutdown();
+        decodeService = new QRCodeDecodeService(qrCodeRepository, properties);
+
+        DecodeReport report = decodeService.decode(List.of(
+                new MockMultipartFile("files", "a.png", "image/png", png("https://example.com/a"))), false);
+
+        assertEquals(0, report.getDecoded());
+        assertTrue(report.getResults().get(0).getError().contains("200x200"));
+    }
+
+    private byte[] png(String text) {
+        return renderer.renderPng(RenderSpec.builder().data(text).width(200).height(200)
+                .onColor(0xFF000000).offColor(0xFFFFFFFF).build());
+    }
+
+    // Rewrites the IHDR width and height (and its CRC) of a PNG without touching the pixel data.
+    private static byte[] withDimensions(byte[] png, int width, int height) {
+        byte[] patched = png.clone();
+        ByteBuffer header = ByteBuffer.wrap(patched);
+        header.putInt(16, width);
+        header.putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(patched, 12, 17);
+        header.putInt(29, (int) crc.getValue());
+        return patched;
+    }
+
+    private static byte[] zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+}
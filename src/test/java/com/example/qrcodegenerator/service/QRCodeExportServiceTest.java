@@ -0,0 +1,108 @@
+package com.example.qrcodegenerator.service;
+
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.ExportFormat;
+import com.example.qrcodegenerator.util.CsvReader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class QRCodeExportServiceTest {
+    private static final String AWKWARD = "say \"hi\", then\nnew line; ünïcödé";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private TypedQuery<Tuple> query;
+    private QRCodeExportService exportService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        EntityManager entityManager = mock(EntityManager.class);
+        query = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(Tuple.class))).thenReturn(query);
+        exportService = new QRCodeExportService(mock(PlatformTransactionManager.class), objectMapper,
+                new QRCodeProperties());
+        ReflectionTestUtils.setField(exportService, "entityManager", entityManager);
+    }
+
+    @Test
+    void csvQuotesDataAndGroupsUserIds() throws Exception {
+        List<Tuple> rows = List.of(row(1L, AWKWARD, 10L), row(1L, AWKWARD, 11L), row(2L, "plain", null));
+        when(query.getResultStream()).thenReturn(rows.stream());
+
+        String csv = export(ExportFormat.CSV);
+
+        assertTrue(csv.startsWith("id,data,userIds\n1,\"say \"\"hi\"\", then\nnew line; ünïcödé\",10;11\n"));
+        CsvReader reader = new CsvReader(new StringReader(csv));
+        assertEquals(List.of("id", "data", "userIds"), reader.next());
+        assertEquals(List.of("1", AWKWARD, "10;11"), reader.next());
+        assertEquals(List.of("2", "plain", ""), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void ndjsonEscapesDataOneObjectPerLine() throws Exception {
+        List<Tuple> rows = List.of(
+                row(1L, AWKWARD, 10L), row(1L, AWKWARD, 11L), row(2L, "tab\there \\ backslash", null));
+        when(query.getResultStream()).thenReturn(rows.stream());
+
+        String ndjson = export(ExportFormat.NDJSON);
+
+        String[] lines = ndjson.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(ndjson.endsWith("\n"));
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(1, first.get("id").asLong());
+        assertEquals(AWKWARD, first.get("data").asText());
+        assertEquals(List.of(10L, 11L), longs(first.get("userIds")));
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertEquals("tab\there \\ backslash", second.get("data").asText());
+        assertTrue(second.get("userIds").isEmpty());
+    }
+
+    @Test
+    void emptyExportWritesOnlyCsvHeader() {
+        when(query.getResultStream()).thenReturn(Stream.empty());
+
+        assertEquals("id,data,userIds\n", export(ExportFormat.CSV));
+        when(query.getResultStream()).thenReturn(Stream.empty());
+        assertEquals("", export(ExportFormat.NDJSON));
+    }
+
+    private String export(ExportFormat format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Tuple row(Long id, String data, Long userId) {
+        Tuple tuple = mock(Tuple.class);
+        when(tuple.get("id", Long.class)).thenReturn(id);
+        when(tuple.get("data", String.class)).thenReturn(data);
+        when(tuple.get("userId", Long.class)).thenReturn(userId);
+        return tuple;
+    }
+
+    private static List<Long> longs(JsonNode array) {
+        List<Long> values = new ArrayList<>();
+        array.forEach(node -> values.add(node.asLong()));
+        return values;
+    }
+}
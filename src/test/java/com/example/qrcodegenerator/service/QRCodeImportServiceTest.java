@@ -0,0 +1,176 @@
+package com.example.qrcodegenerator.service;
+
+import com.example.qrcodegenerator.cache.SimpleCache;
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.ImportReport;
+import com.example.qrcodegenerator.model.QRCode;
+import com.example.qrcodegenerator.model.User;
+import com.example.qrcodegenerator.repository.QRCodeIdAllocator;
+import com.example.qrcodegenerator.util.ContentHash;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class QRCodeImportServiceTest {
+    private final QRCodeProperties properties = new QRCodeProperties();
+    private final List<Statement> statements = new ArrayList<>();
+    private final List<Integer> updateCounts = new ArrayList<>();
+    private final AtomicLong nextId = new AtomicLong(100);
+    private JdbcTemplate jdbcTemplate;
+    private UserService userService;
+    private SimpleCache<String, List<QRCode>> contentSearchCache;
+    private Cache secondLevelCache;
+    private QRCodeImportService importService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class))).thenAnswer(invocation -> {
+            Statement statement = new Statement(invocation.getArgument(0));
+            invocation.<PreparedStatementSetter>getArgument(1).setValues(statement.preparedStatement());
+            statements.add(statement);
+            if (updateCounts.isEmpty()) {
+                throw new DataIntegrityViolationException("unexpected statement: " + statement.sql);
+            }
+            return updateCounts.remove(0);
+        });
+        QRCodeIdAllocator idAllocator = mock(QRCodeIdAllocator.class);
+        when(idAllocator.allocate(anyInt())).thenAnswer(invocation -> {
+            long[] ids = new long[invocation.<Integer>getArgument(0)];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = nextId.getAndIncrement();
+            }
+            return ids;
+        });
+        userService = mock(UserService.class);
+        when(userService.getById(anyLong())).thenAnswer(invocation -> new User());
+        contentSearchCache = mock(SimpleCache.class);
+        secondLevelCache = mock(Cache.class);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.getCache()).thenReturn(secondLevelCache);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        importService = new QRCodeImportService(jdbcTemplate, idAllocator, userService, contentSearchCache,
+                entityManagerFactory, mock(PlatformTransactionManager.class), properties);
+    }
+
+    @Test
+    void importsRowsAndLinksByIdAndReportsRejectedLines() throws Exception {
+        updateCounts.addAll(List.of(2, 3));
+
+        ImportReport report = importCsv("data,userIds\nhttps://a,10;11\n,10\nhttps://b,11\nhttps://c,x\n", null);
+
+        assertEquals(4, report.getRecordsRead());
+        assertEquals(2, report.getImported());
+        assertEquals(3, report.getLinked());
+        assertEquals(2, report.getFailed());
+        assertEquals(List.of(3L, 5L), report.getErrors().stream().map(ImportReport.LineError::getLine).toList());
+        assertEquals(2, statements.size());
+        assertFalse(statements.get(0).sql.contains("on conflict"));
+        assertEquals(List.of(100L, 101L), statements.get(0).arrays.get(0));
+        assertEquals(List.of("https://a", "https://b"), statements.get(0).arrays.get(1));
+        assertEquals(List.of(10L, 11L, 11L), statements.get(1).arrays.get(0));
+        assertEquals(List.of(100L, 100L, 101L), statements.get(1).arrays.get(1));
+        verifyEvicted();
+    }
+
+    @Test
+    void dedupLinksByContentHashAndEvictsWhenOnlyLinksAreWritten() throws Exception {
+        properties.getDedup().setEnabled(true);
+        // every payload already exists, so no qrcode row is inserted but the links are
+        updateCounts.addAll(List.of(0, 2));
+
+        ImportReport report = importCsv("data\nhttps://a\nhttps://b\n", 10L);
+
+        assertEquals(0, report.getImported());
+        assertEquals(2, report.getLinked());
+        assertTrue(statements.get(0).sql.contains("on conflict (content_hash) do nothing"));
+        assertEquals(List.of(ContentHash.sha256("https://a"), ContentHash.sha256("https://b")),
+                statements.get(0).arrays.get(2));
+        assertTrue(statements.get(1).sql.contains("join qrcode on qrcode.content_hash = link.content_hash"));
+        assertEquals(List.of(10L, 10L), statements.get(1).arrays.get(0));
+        assertEquals(List.of(ContentHash.sha256("https://a"), ContentHash.sha256("https://b")),
+                statements.get(1).arrays.get(1));
+        verifyEvicted();
+    }
+
+    @Test
+    void evictsCommittedBatchesWhenLaterBatchFails() {
+        properties.getCsvImport().setBatchSize(1);
+        // the second batch's insert fails
+        updateCounts.add(1);
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> importCsv("data\nhttps://a\nhttps://b\n", null));
+        verifyEvicted();
+    }
+
+    @Test
+    void leavesCachesAloneWhenNothingIsWritten() throws Exception {
+        properties.getDedup().setEnabled(true);
+        updateCounts.add(0);
+
+        ImportReport report = importCsv("data\nhttps://a\n", null);
+
+        assertEquals(0, report.getImported());
+        assertEquals(0, report.getLinked());
+        verifyNoInteractions(secondLevelCache, contentSearchCache);
+    }
+
+    @Test
+    void rejectsMissingDataColumn() {
+        assertThrows(IllegalArgumentException.class, () -> importCsv("url\nhttps://a\n", null));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private ImportReport importCsv(String csv, Long defaultUserId) throws Exception {
+        return importService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), defaultUserId);
+    }
+
+    private void verifyEvicted() {
+        verify(secondLevelCache).evictAllRegions();
+        verify(contentSearchCache).clear();
+    }
+
+    // Records the arrays bound to one statement, in parameter order.
+    private static final class Statement {
+        private final String sql;
+        private final List<List<Object>> arrays = new ArrayList<>();
+
+        Statement(String sql) {
+            this.sql = sql;
+        }
+
+        PreparedStatement preparedStatement() throws Exception {
+            Connection connection = mock(Connection.class);
+            when(connection.createArrayOf(anyString(), any())).thenAnswer(invocation -> {
+                arrays.add(Arrays.asList(invocation.<Object[]>getArgument(1)));
+                return mock(Array.class);
+            });
+            PreparedStatement statement = mock(PreparedStatement.class);
+            when(statement.getConnection()).thenReturn(connection);
+            return statement;
+        }
+    }
+}
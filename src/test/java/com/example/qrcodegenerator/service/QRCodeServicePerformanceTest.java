@@ -0,0 +1,253 @@
+package com.example.qrcodegenerator.service;
+
+import com.example.qrcodegenerator.cache.HotnessTracker;
+import com.example.qrcodegenerator.cache.SimpleCache;
+import com.example.qrcodegenerator.cache.TieredImageStore;
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.QRCodeRequest;
+import com.example.qrcodegenerator.dto.QRCodeResponse;
+import com.example.qrcodegenerator.mapper.QRCodeMapper;
+import com.example.qrcodegenerator.model.QRCode;
+import com.example.qrcodegenerator.model.User;
+import com.example.qrcodegenerator.render.QRCodeRenderer;
+import com.example.qrcodegenerator.render.RenderProfileRegistry;
+import com.example.qrcodegenerator.repository.QRCodeRepository;
+import com.example.qrcodegenerator.writebehind.WriteBehindWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Runs the real render and list paths and fails when bytes allocated or latency per operation exceed the
+// budgets in perf-budgets.properties. Allocation is deterministic enough for every build; the latency tests are
+// tagged and only run with -Platency-budgets.
+class QRCodeServicePerformanceTest {
+    private static final String LATENCY = "latency";
+    private static final String BUDGETS = "/perf-budgets.properties";
+    private static final int LIST_SIZE = 1000;
+
+    private static Properties budgets;
+    private static com.sun.management.ThreadMXBean threads;
+
+    private QRCodeRepository qrCodeRepository;
+    private TieredImageStore imageStore;
+
+    @BeforeAll
+    static void loadBudgets() throws IOException {
+        budgets = new Properties();
+        try (InputStream in = QRCodeServicePerformanceTest.class.getResourceAsStream(BUDGETS)) {
+            assertNotNull(in, BUDGETS + " is missing");
+            budgets.load(in);
+        }
+        threads = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                ? bean
+                : null;
+        assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported(),
+                "thread allocation counters are not available on this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @AfterEach
+    void closeImageStore() {
+        if (imageStore != null) {
+            imageStore.close();
+        }
+    }
+
+    @Test
+    void coldPngRenderStaysWithinAllocationBudget() {
+        checkAllocation("render.png", coldPngRender());
+    }
+
+    @Test
+    @Tag(LATENCY)
+    void coldPngRenderStaysWithinLatencyBudget() {
+        checkLatency("render.png", coldPngRender());
+    }
+
+    @Test
+    void coldDataUrlRenderStaysWithinAllocationBudget() {
+        checkAllocation("render.data-url", coldDataUrlRender());
+    }
+
+    @Test
+    @Tag(LATENCY)
+    void coldDataUrlRenderStaysWithinLatencyBudget() {
+        checkLatency("render.data-url", coldDataUrlRender());
+    }
+
+    @Test
+    void cachedRenderStaysWithinAllocationBudget() {
+        checkAllocation("render.cached", cachedRender());
+    }
+
+    @Test
+    @Tag(LATENCY)
+    void cachedRenderStaysWithinLatencyBudget() {
+        checkLatency("render.cached", cachedRender());
+    }
+
+    @Test
+    void listAllStaysWithinAllocationBudget() {
+        checkAllocation("list.all", listAll());
+    }
+
+    @Test
+    @Tag(LATENCY)
+    void listAllStaysWithinLatencyBudget() {
+        checkLatency("list.all", listAll());
+    }
+
+    @Test
+    void listByUsersStaysWithinAllocationBudget() {
+        checkAllocation("list.by-users", listByUsers());
+    }
+
+    @Test
+    @Tag(LATENCY)
+    void listByUsersStaysWithinLatencyBudget() {
+        checkLatency("list.by-users", listByUsers());
+    }
+
+    private Measurement coldPngRender() {
+        QRCodeService service = service(false);
+        return measure(2000, 1000, 1, i -> service.generateQRCode("https://example.com/items/" + i));
+    }
+
+    private Measurement coldDataUrlRender() {
+        QRCodeService service = service(false);
+        QRCodeRequest request = new QRCodeRequest();
+        return measure(2000, 1000, 1, i -> {
+            request.setData("https://example.com/items/" + i);
+            service.renderImage(request);
+        });
+    }
+
+    private Measurement cachedRender() {
+        QRCodeService service = service(true);
+        return measure(5000, 5000, 1, i -> service.generateQRCode("https://example.com/items/" + (i % 16)));
+    }
+
+    private Measurement listAll() {
+        QRCodeService service = service(false);
+        List<QRCode> rows = qrCodes();
+        when(qrCodeRepository.findAll()).thenReturn(rows);
+        return measure(200, 200, LIST_SIZE, i -> {
+            List<QRCodeResponse> responses = service.findAll().stream()
+                    .map(QRCodeMapper::toDTO)
+                    .collect(Collectors.toList());
+            assertEquals(LIST_SIZE, responses.size());
+        });
+    }
+
+    private Measurement listByUsers() {
+        QRCodeService service = service(false);
+        List<Object[]> pairs = new ArrayList<>();
+        List<QRCode> rows = qrCodes();
+        for (int i = 0; i < rows.size(); i++) {
+            pairs.add(new Object[]{(long) (i % 10), rows.get(i)});
+        }
+        when(qrCodeRepository.findPairsByUserIdIn(any())).thenReturn(pairs);
+        List<Long> userIds = List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L);
+        return measure(200, 200, LIST_SIZE, i -> {
+            List<QRCodeResponse> responses = new ArrayList<>();
+            for (Map.Entry<Long, List<QRCode>> entry : service.findByUserIds(userIds).entrySet()) {
+                entry.getValue().forEach(qrCode -> responses.add(QRCodeMapper.toDTO(qrCode, entry.getKey())));
+            }
+            assertEquals(LIST_SIZE, responses.size());
+        });
+    }
+
+    private QRCodeService service(boolean imageStoreEnabled) {
+        QRCodeProperties properties = new QRCodeProperties();
+        properties.getImageStore().setEnabled(imageStoreEnabled);
+        properties.getImageStore().setMemoryMaxSize(DataSize.ofMegabytes(16));
+        properties.getImageStore().setMemorySlabSize(DataSize.ofMegabytes(1));
+        properties.getImageStore().setDiskEnabled(false);
+        // stub-only mocks do not record calls, which would otherwise count as allocation of the measured path
+        qrCodeRepository = mock(QRCodeRepository.class, withSettings().stubOnly());
+        HotnessTracker hotness = new HotnessTracker(properties);
+        imageStore = new TieredImageStore(properties, hotness);
+        return new QRCodeService(qrCodeRepository, new SimpleCache<>(),
+                mock(UserService.class, withSettings().stubOnly()), new QRCodeRenderer(), imageStore,
+                mock(RenderProfileRegistry.class, withSettings().stubOnly()), properties,
+                mock(WriteBehindWriter.class, withSettings().stubOnly()), hotness);
+    }
+
+    private static List<QRCode> qrCodes() {
+        List<QRCode> rows = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            QRCode qrCode = new QRCode();
+            qrCode.setId((long) i);
+            qrCode.setData("https://example.com/items/" + i);
+            if (i % 2 == 0) {
+                User user = new User();
+                user.setId((long) (i % 10));
+                qrCode.getUsers().add(user);
+            }
+            rows.add(qrCode);
+        }
+        return rows;
+    }
+
+    // Runs the operation warmup times for the JIT, then measures; results are per unit (per listed row for lists).
+    private static Measurement measure(int warmup, int iterations, int unitsPerOperation, IntConsumer operation) {
+        for (int i = 0; i < warmup; i++) {
+            operation.accept(i);
+        }
+        long[] nanos = new long[iterations];
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            long started = System.nanoTime();
+            operation.accept(warmup + i);
+            nanos[i] = System.nanoTime() - started;
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        Arrays.sort(nanos);
+        long units = (long) iterations * unitsPerOperation;
+        return new Measurement(allocated / units,
+                nanos[iterations / 2] / 1000 / unitsPerOperation,
+                nanos[Math.min(iterations - 1, iterations * 99 / 100)] / 1000 / unitsPerOperation);
+    }
+
+    private static void checkAllocation(String name, Measurement measurement) {
+        assertWithinBudget(name + ".bytes-per-op", measurement.bytesPerOp, measurement);
+    }
+
+    private static void checkLatency(String name, Measurement measurement) {
+        assertWithinBudget(name + ".p50-micros", measurement.p50Micros, measurement);
+        assertWithinBudget(name + ".p99-micros", measurement.p99Micros, measurement);
+    }
+
+    private static void assertWithinBudget(String key, long actual, Measurement measurement) {
+        String budget = budgets.getProperty(key);
+        assertNotNull(budget, "No budget for " + key + " in " + BUDGETS);
+        assertTrue(actual <= Long.parseLong(budget.trim()),
+                () -> key + " is " + actual + ", over the budget of " + budget + " in " + BUDGETS + " (measured "
+                        + measurement + ")");
+    }
+
+    private record Measurement(long bytesPerOp, long p50Micros, long p99Micros) {
+        @Override
+        public String toString() {
+            return bytesPerOp + " bytes/op, p50 " + p50Micros + " us, p99 " + p99Micros + " us";
+        }
+    }
+}
@@ -1,24 +1,34 @@
 package com.example.qrcodegenerator.service;
 
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.dto.ListImageOptions;
 import com.example.qrcodegenerator.dto.QRCodeRequest;
 import com.example.qrcodegenerator.dto.QRCodeResponse;
 import com.example.qrcodegenerator.model.QRCode;
 import com.example.qrcodegenerator.model.User;
 import com.example.qrcodegenerator.repository.QRCodeRepository;
+import com.example.qrcodegenerator.cache.HotnessTracker;
 import com.example.qrcodegenerator.cache.SimpleCache;
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.WriterException;
-import com.google.zxing.common.BitArray;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
+import com.example.qrcodegenerator.cache.TieredImageStore;
+import com.example.qrcodegenerator.render.EncodingMode;
+import com.example.qrcodegenerator.render.QRCodeRenderer;
+import com.example.qrcodegenerator.render.RenderProfile;
+import com.example.qrcodegenerator.render.RenderProfileRegistry;
+import com.example.qrcodegenerator.render.RenderSpec;
+import com.example.qrcodegenerator.writebehind.WriteBehindWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -35,12 +45,27 @@ class QRCodeServiceTest {
     @Mock
     private UserService userService;
 
+    @Spy
+    private QRCodeRenderer renderer = new QRCodeRenderer();
+
+    @Spy
+    private HotnessTracker hotness = new HotnessTracker(new QRCodeProperties());
+
+    @Spy
+    private TieredImageStore imageStore = new TieredImageStore(new QRCodeProperties(), hotness);
+
     @Mock
-    private QRCodeWriter qrCodeWriter;
+    private RenderProfileRegistry profileRegistry;
 
     @Mock
     private SimpleCache<String, List<QRCode>> contentSearchCache;
 
+    @Spy
+    private QRCodeProperties properties = new QRCodeProperties();
+
+    @Mock
+    private WriteBehindWriter writeBehind;
+
     @InjectMocks
     private QRCodeService qrCodeService;
 
@@ -52,28 +77,25 @@ class QRCodeServiceTest {
     void generateBulkQRCodesReturnsEmptyListForEmptyInput() {
         List<QRCodeResponse> result = qrCodeService.generateBulkQRCodes(List.of(), null);
         assertTrue(result.isEmpty());
-        verifyNoInteractions(qrCodeRepository, userService, qrCodeWriter, contentSearchCache);
+        verifyNoInteractions(qrCodeRepository, userService, renderer, contentSearchCache);
     }
 
     @Test
     void generateBulkQRCodesThrowsExceptionForNullRequest() {
         assertThrows(IllegalArgumentException.class,
                 () -> qrCodeService.generateBulkQRCodes(null, null));
-        verifyNoInteractions(qrCodeRepository, userService, qrCodeWriter, contentSearchCache);
+        verifyNoInteractions(qrCodeRepository, userService, renderer, contentSearchCache);
     }
 
     @Test
-    void generateBulkQRCodesThrowsExceptionWhenGenerationFails() throws WriterException {
+    void generateBulkQRCodesThrowsExceptionWhenGenerationFails() {
         QRCodeRequest qrCodeRequest = mock(QRCodeRequest.class);
-        lenient().when(qrCodeRequest.getData()).thenReturn("https://example.com");
+        lenient().when(qrCodeRequest.getData()).thenReturn("x".repeat(8000));
         lenient().when(qrCodeRequest.getColor()).thenReturn("#FF0000");
         lenient().when(qrCodeRequest.getBackgroundColor()).thenReturn("#FFFFFF");
         lenient().when(qrCodeRequest.getWidth()).thenReturn(200);
         lenient().when(qrCodeRequest.getHeight()).thenReturn(200);
 
-        when(qrCodeWriter.encode(anyString(), eq(BarcodeFormat.QR_CODE), anyInt(), anyInt()))
-                .thenThrow(new WriterException("Generation error"));
-
         assertThrows(RuntimeException.class,
                 () -> qrCodeService.generateBulkQRCodes(List.of(qrCodeRequest), null));
 
@@ -82,7 +104,7 @@ class QRCodeServiceTest {
     }
 
     @Test
-    void generateBulkQRCodesGeneratesAndSavesQRCodesSuccessfully() throws WriterException {
+    void generateBulkQRCodesGeneratesAndSavesQRCodesSuccessfully() {
         QRCodeRequest qrCodeRequest = mock(QRCodeRequest.class);
         lenient().when(qrCodeRequest.getData()).thenReturn("https://example.com");
         lenient().when(qrCodeRequest.getColor()).thenReturn("#FF0000");
@@ -90,14 +112,6 @@ class QRCodeServiceTest {
         lenient().when(qrCodeRequest.getWidth()).thenReturn(200);
         lenient().when(qrCodeRequest.getHeight()).thenReturn(200);
 
-        BitMatrix bitMatrix = mock(BitMatrix.class);
-        when(bitMatrix.getWidth()).thenReturn(200);
-        when(bitMatrix.getHeight()).thenReturn(200);
-        BitArray bitArray = mock(BitArray.class);
-        when(bitArray.get(anyInt())).thenReturn(true);
-        when(bitMatrix.getRow(anyInt(), any(BitArray.class))).thenReturn(bitArray);
-        when(qrCodeWriter.encode(anyString(), eq(BarcodeFormat.QR_CODE), eq(200), eq(200)))
-                .thenReturn(bitMatrix);
         QRCode savedQRCode = mock(QRCode.class);
         when(savedQRCode.getId()).thenReturn(1L);
         when(savedQRCode.getData()).thenReturn("https://example.com");
@@ -107,13 +121,14 @@ class QRCodeServiceTest {
         assertFalse(result.isEmpty());
         assertEquals(1, result.size());
         assertEquals("https://example.com", result.get(0).getData());
-        verify(qrCodeWriter).encode(anyString(), eq(BarcodeFormat.QR_CODE), eq(200), eq(200));
+        assertTrue(result.get(0).getImageUrl().startsWith("data:image/png;base64,iVBORw0KGgo"));
+        verify(renderer).renderPng(any());
         verify(qrCodeRepository).save(any(QRCode.class));
         verifyNoInteractions(userService, contentSearchCache);
     }
 
     @Test
-    void generateBulkQRCodesAssociatesUserCorrectly() throws WriterException {
+    void generateBulkQRCodesAssociatesUserCorrectly() {
         QRCodeRequest qrCodeRequest = mock(QRCodeRequest.class);
         lenient().when(qrCodeRequest.getData()).thenReturn("data");
         lenient().when(qrCodeRequest.getColor()).thenReturn("#FF0000");
@@ -123,15 +138,7 @@ class QRCodeServiceTest {
 
         User user = mock(User.class);
         when(user.getId()).thenReturn(1L);
-        when(userService.getById(eq(1L))).thenReturn(user);
-        BitMatrix bitMatrix = mock(BitMatrix.class);
-        when(bitMatrix.getWidth()).thenReturn(200);
-        when(bitMatrix.getHeight()).thenReturn(200);
-        BitArray bitArray = mock(BitArray.class);
-        when(bitArray.get(anyInt())).thenReturn(true);
-        when(bitMatrix.getRow(anyInt(), any(BitArray.class))).thenReturn(bitArray);
-        when(qrCodeWriter.encode(anyString(), eq(BarcodeFormat.QR_CODE), eq(200), eq(200)))
-                .thenReturn(bitMatrix);
+        when(userService.getReference(eq(1L))).thenReturn(user);
         QRCode savedQRCode = mock(QRCode.class);
         when(savedQRCode.getId()).thenReturn(1L);
         when(savedQRCode.getData()).thenReturn("data");
@@ -141,13 +148,53 @@ class QRCodeServiceTest {
         assertFalse(result.isEmpty());
         assertEquals(1, result.size());
         assertEquals(1L, result.get(0).getUserId());
-        verify(userService).getById(1L);
+        verify(userService).getReference(1L);
         verify(userService).save(user);
-        verify(qrCodeWriter).encode(anyString(), eq(BarcodeFormat.QR_CODE), eq(200), eq(200));
+        verify(renderer).renderPng(any());
         verify(qrCodeRepository).save(any(QRCode.class));
         verifyNoInteractions(contentSearchCache);
     }
 
+    @Test
+    void generateBulkQRCodesRendersIdenticalRequestsOnce() {
+        QRCodeRequest first = new QRCodeRequest();
+        first.setData("https://example.com");
+        QRCodeRequest second = new QRCodeRequest();
+        second.setData("https://example.com");
+        when(qrCodeRepository.save(any(QRCode.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<QRCodeResponse> result = qrCodeService.generateBulkQRCodes(List.of(first, second), null);
+        assertEquals(2, result.size());
+        assertEquals(result.get(0).getImageUrl(), result.get(1).getImageUrl());
+        verify(renderer, times(1)).renderPng(any());
+        verify(qrCodeRepository, times(2)).save(any(QRCode.class));
+    }
+
+    @Test
+    void renderImageAppliesRequestedEncodingOptions() {
+        QRCodeRequest request = new QRCodeRequest();
+        request.setData("0123456789");
+        request.setErrorCorrection("H");
+        request.setMargin(1);
+        request.setEncodingMode("utf8");
+
+        assertTrue(qrCodeService.renderImage(request).startsWith("data:image/png;base64,"));
+        verify(renderer).renderPng(argThat((RenderSpec spec) -> spec.getErrorCorrection() == ErrorCorrectionLevel.H
+                && spec.getMargin() == 1
+                && spec.getEncodingMode() == EncodingMode.UTF8));
+    }
+
+    @Test
+    void renderImageDefaultsToOptimizedEncoding() {
+        QRCodeRequest request = new QRCodeRequest();
+        request.setData("https://example.com/a");
+
+        qrCodeService.renderImage(request);
+        verify(renderer).renderPng(argThat((RenderSpec spec) -> spec.getErrorCorrection() == ErrorCorrectionLevel.L
+                && spec.getMargin() == 4
+                && spec.getEncodingMode() == EncodingMode.OPTIMIZE));
+    }
+
     @Test
     void generateBulkQRCodesThrowsExceptionForEmptyData() {
         QRCodeRequest qrCodeRequest = mock(QRCodeRequest.class);
@@ -159,11 +206,11 @@ class QRCodeServiceTest {
 
         assertThrows(IllegalArgumentException.class,
                 () -> qrCodeService.generateBulkQRCodes(List.of(qrCodeRequest), null));
-        verifyNoInteractions(qrCodeRepository, userService, qrCodeWriter, contentSearchCache);
+        verifyNoInteractions(qrCodeRepository, userService, renderer, contentSearchCache);
     }
 
     @Test
-    void generateBulkQRCodesThrowsExceptionForInvalidColor() throws WriterException {
+    void generateBulkQRCodesThrowsExceptionForInvalidColor() {
         QRCodeRequest qrCodeRequest = mock(QRCodeRequest.class);
         lenient().when(qrCodeRequest.getData()).thenReturn("https://example.com");
         lenient().when(qrCodeRequest.getColor()).thenReturn("invalid-color");
@@ -171,22 +218,55 @@ class QRCodeServiceTest {
         lenient().when(qrCodeRequest.getWidth()).thenReturn(200);
         lenient().when(qrCodeRequest.getHeight()).thenReturn(200);
 
-        BitMatrix bitMatrix = mock(BitMatrix.class);
-        when(bitMatrix.getWidth()).thenReturn(200);
-        when(bitMatrix.getHeight()).thenReturn(200);
-        when(qrCodeWriter.encode(anyString(), eq(BarcodeFormat.QR_CODE), eq(200), eq(200)))
-                .thenReturn(bitMatrix);
-
         assertThrows(RuntimeException.class,
                 () -> qrCodeService.generateBulkQRCodes(List.of(qrCodeRequest), null));
-        verify(qrCodeWriter).encode(anyString(), eq(BarcodeFormat.QR_CODE), eq(200), eq(200));
         verifyNoInteractions(userService, qrCodeRepository, contentSearchCache);
     }
 
     @Test
     void generateQRCodeThrowsExceptionForNullText() {
         assertThrows(IllegalArgumentException.class, () -> qrCodeService.generateQRCode(null));
-        verifyNoInteractions(qrCodeWriter, qrCodeRepository, userService, contentSearchCache);
+        verifyNoInteractions(renderer, qrCodeRepository, userService, contentSearchCache);
+    }
+
+    @Test
+    void generateQRCodeServesRepeatedTextFromImageStore() {
+        byte[] first = qrCodeService.generateQRCode("https://example.com");
+        byte[] second = qrCodeService.generateQRCode("https://example.com");
+        byte[] third = qrCodeService.generateQRCode("https://example.com");
+        assertArrayEquals(first, second);
+        assertArrayEquals(first, third);
+        // stored once seen twice, so the first two requests render
+        verify(renderer, times(2)).renderPng(any());
+    }
+
+    @Test
+    void generateQRCodeDoesNotStoreOneOffText() {
+        qrCodeService.generateQRCode("https://example.com/once");
+        assertFalse(hotness.admitRender("unseen"));
+        assertEquals(0, imageStore.getMemoryHits());
+        assertEquals(1, imageStore.getMisses());
+        assertEquals(1, hotness.topRenders(10).size());
+        assertEquals("https://example.com/once", hotness.topRenders(10).get(0).value().getData());
+    }
+
+    @Test
+    void writeQRCodeHandsStoredPngToSink() throws Exception {
+        qrCodeService.generateQRCode("https://example.com");
+        byte[] expected = qrCodeService.generateQRCode("https://example.com");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        qrCodeService.writeQRCode("https://example.com", out::write);
+
+        assertArrayEquals(expected, out.toByteArray());
+        verify(renderer, times(2)).renderPng(any());
+    }
+
+    @Test
+    void writeQRCodeThrowsExceptionForBlankTextBeforeWriting() {
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.writeQRCode(" ", (png, offset, length) -> fail("sink must not be called")));
+        verifyNoInteractions(renderer);
     }
 
     @Test
@@ -197,7 +277,7 @@ class QRCodeServiceTest {
         List<QRCode> result = qrCodeService.findAll();
         assertEquals(1, result.size());
         verify(qrCodeRepository).findAll();
-        verifyNoInteractions(userService, qrCodeWriter, contentSearchCache);
+        verifyNoInteractions(userService, renderer, contentSearchCache);
     }
 
     @Test
@@ -208,7 +288,7 @@ class QRCodeServiceTest {
         QRCode result = qrCodeService.save(qrCode);
         assertNotNull(result);
         verify(qrCodeRepository).save(qrCode);
-        verifyNoInteractions(userService, qrCodeWriter, contentSearchCache);
+        verifyNoInteractions(userService, renderer, contentSearchCache);
     }
 
     @Test
@@ -219,7 +299,7 @@ class QRCodeServiceTest {
         QRCode result = qrCodeService.getById(1L);
         assertNotNull(result);
         verify(qrCodeRepository).findById(1L);
-        verifyNoInteractions(userService, qrCodeWriter, contentSearchCache);
+        verifyNoInteractions(userService, renderer, contentSearchCache);
     }
 
     @Test
@@ -228,32 +308,55 @@ class QRCodeServiceTest {
 
         assertThrows(RuntimeException.class, () -> qrCodeService.getById(1L));
         verify(qrCodeRepository).findById(1L);
-        verifyNoInteractions(userService, qrCodeWriter, contentSearchCache);
+        verifyNoInteractions(userService, renderer, contentSearchCache);
     }
 
     @Test
     void deleteByIdDeletesQRCode() {
         qrCodeService.deleteById(1L);
         verify(qrCodeRepository).deleteById(1L);
-        verifyNoInteractions(userService, qrCodeWriter, contentSearchCache);
+        verifyNoInteractions(userService, renderer, contentSearchCache);
     }
 
     @Test
     void findByUserReturnsQRCodesForValidUser() {
         User user = mock(User.class);
         QRCode qrCode = mock(QRCode.class);
-        when(user.getQrCodes()).thenReturn(Set.of(qrCode));
+        when(user.getId()).thenReturn(1L);
+        when(qrCodeRepository.findByUsersId(1L)).thenReturn(List.of(qrCode));
 
         List<QRCode> result = qrCodeService.findByUser(user);
         assertEquals(1, result.size());
-        verifyNoInteractions(qrCodeRepository, userService, qrCodeWriter, contentSearchCache);
+        verify(qrCodeRepository).findByUsersId(1L);
+        verifyNoInteractions(userService, renderer, contentSearchCache);
     }
 
     @Test
     void findByUserReturnsEmptyListForNullUser() {
         List<QRCode> result = qrCodeService.findByUser(null);
         assertTrue(result.isEmpty());
-        verifyNoInteractions(qrCodeRepository, userService, qrCodeWriter, contentSearchCache);
+        verifyNoInteractions(qrCodeRepository, userService, renderer, contentSearchCache);
+    }
+
+    @Test
+    void findByUserIdsGroupsRowsFromSingleQuery() {
+        QRCode first = new QRCode();
+        first.setId(10L);
+        QRCode second = new QRCode();
+        second.setId(11L);
+        when(qrCodeRepository.findPairsByUserIdIn(Set.of(1L, 2L))).thenReturn(List.of(
+                new Object[]{1L, first}, new Object[]{1L, second}, new Object[]{2L, first}));
+
+        Map<Long, List<QRCode>> result = qrCodeService.findByUserIds(List.of(1L, 2L, 1L));
+        assertEquals(List.of(first, second), result.get(1L));
+        assertEquals(List.of(first), result.get(2L));
+        verify(qrCodeRepository, times(1)).findPairsByUserIdIn(any());
+    }
+
+    @Test
+    void findAllByIdsRejectsEmptyList() {
+        assertThrows(IllegalArgumentException.class, () -> qrCodeService.findAllByIds(List.of()));
+        verifyNoInteractions(qrCodeRepository);
     }
 
     @Test
@@ -264,7 +367,7 @@ class QRCodeServiceTest {
         List<QRCode> result = qrCodeService.findByDataContaining("test");
         assertEquals(1, result.size());
         verify(contentSearchCache).get("test");
-        verifyNoInteractions(qrCodeRepository, userService, qrCodeWriter);
+        verifyNoInteractions(qrCodeRepository, userService, renderer);
     }
 
     @Test
@@ -276,14 +379,236 @@ class QRCodeServiceTest {
         List<QRCode> result = qrCodeService.findByDataContaining("test");
         assertEquals(1, result.size());
         verify(qrCodeRepository).findByDataContaining("test");
-        verify(contentSearchCache).put("test", List.of(dbQRCode));
-        verifyNoInteractions(userService, qrCodeWriter);
+        verify(contentSearchCache, never()).put(any(), any());
+        verifyNoInteractions(userService, renderer);
+    }
+
+    @Test
+    void findByDataContainingCachesRepeatedTerm() {
+        QRCode dbQRCode = mock(QRCode.class);
+        when(contentSearchCache.get("test")).thenReturn(null);
+        when(qrCodeRepository.findByDataContaining("test")).thenReturn(List.of(dbQRCode));
+
+        qrCodeService.findByDataContaining("test");
+        qrCodeService.findByDataContaining("test");
+        verify(contentSearchCache, times(1)).put("test", List.of(dbQRCode));
+        assertEquals("test", hotness.topSearches(1).get(0).key());
     }
 
     @Test
     void clearContentSearchCacheRemovesCacheEntry() {
         qrCodeService.clearContentSearchCache("test");
         verify(contentSearchCache).remove("test");
-        verifyNoInteractions(qrCodeRepository, userService, qrCodeWriter);
+        verifyNoInteractions(qrCodeRepository, userService, renderer);
+    }
+
+    @Test
+    void createQRCodeReusesExistingRowWhenDedupEnabled() {
+        properties.getDedup().setEnabled(true);
+        QRCode existing = new QRCode();
+        existing.setId(7L);
+        existing.setData("https://example.com");
+        when(qrCodeRepository.findByContentHash(anyString())).thenReturn(Optional.of(existing));
+
+        QRCode result = qrCodeService.createQRCode("https://example.com", null);
+        assertSame(existing, result);
+        verify(qrCodeRepository, never()).save(any());
+        verify(qrCodeRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(userService, renderer, contentSearchCache);
+    }
+
+    @Test
+    void createQRCodeStoresContentHashWhenDedupEnabled() {
+        properties.getDedup().setEnabled(true);
+        when(qrCodeRepository.findByContentHash(anyString())).thenReturn(Optional.empty());
+        when(qrCodeRepository.saveAndFlush(any(QRCode.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        QRCode result = qrCodeService.createQRCode("https://example.com", null);
+        assertEquals("https://example.com", result.getData());
+        assertEquals(64, result.getContentHash().length());
+        verifyNoInteractions(userService, renderer, contentSearchCache);
+    }
+
+    @Test
+    void updateDataClearsContentHashWhenDedupDisabled() {
+        QRCode qrCode = linkedQRCode(1L, "https://example.com/old");
+        qrCode.setContentHash("0".repeat(64));
+        when(qrCodeRepository.findById(1L)).thenReturn(Optional.of(qrCode));
+        when(qrCodeRepository.save(qrCode)).thenReturn(qrCode);
+
+        QRCode result = qrCodeService.updateData(1L, "https://example.com/new", null);
+
+        assertEquals("https://example.com/new", result.getData());
+        assertNull(result.getContentHash());
+    }
+
+    @Test
+    void updateDataRejectsSharedRowWithoutUserWhenDedupEnabled() {
+        properties.getDedup().setEnabled(true);
+        QRCode shared = linkedQRCode(1L, "https://example.com/old", user(10L), user(11L));
+        when(qrCodeRepository.findById(1L)).thenReturn(Optional.of(shared));
+        when(qrCodeRepository.findByContentHash(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.updateData(1L, "https://example.com/new", null));
+        assertEquals("https://example.com/old", shared.getData());
+        verify(qrCodeRepository, never()).save(any());
+        verify(qrCodeRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void updateDataMovesOnlyCallersLinkWhenDedupEnabled() {
+        properties.getDedup().setEnabled(true);
+        User caller = user(10L);
+        User other = user(11L);
+        QRCode shared = linkedQRCode(1L, "https://example.com/old", caller, other);
+        when(qrCodeRepository.findById(1L)).thenReturn(Optional.of(shared));
+        when(qrCodeRepository.findByContentHash(anyString())).thenReturn(Optional.empty());
+        when(qrCodeRepository.saveAndFlush(any(QRCode.class))).thenAnswer(invocation -> {
+            QRCode created = invocation.getArgument(0);
+            created.setId(2L);
+            return created;
+        });
+
+        QRCode result = qrCodeService.updateData(1L, "https://example.com/new", 10L);
+
+        assertEquals(2L, result.getId());
+        assertEquals("https://example.com/new", result.getData());
+        assertEquals("https://example.com/old", shared.getData());
+        assertEquals(Set.of(other), shared.getUsers());
+        assertEquals(Set.of(caller), result.getUsers());
+        assertEquals(Set.of(result), caller.getQrCodes());
+        assertEquals(Set.of(shared), other.getQrCodes());
+        verify(userService).save(caller);
+        verify(qrCodeRepository, never()).save(any());
+    }
+
+    @Test
+    void updateDataKeepsCallersOtherLinksWhenDedupEnabled() {
+        properties.getDedup().setEnabled(true);
+        User caller = user(10L);
+        QRCode shared = linkedQRCode(1L, "https://example.com/old", caller, user(11L));
+        QRCode kept = linkedQRCode(5L, "https://example.com/kept", caller);
+        when(qrCodeRepository.findById(1L)).thenReturn(Optional.of(shared));
+        when(qrCodeRepository.findByContentHash(anyString())).thenReturn(Optional.empty());
+        when(qrCodeRepository.saveAndFlush(any(QRCode.class))).thenAnswer(invocation -> {
+            QRCode created = invocation.getArgument(0);
+            created.setId(2L);
+            return created;
+        });
+        // the cached copy has no qrCodes loaded
+        lenient().when(userService.getById(10L)).thenReturn(user(10L));
+
+        QRCode result = qrCodeService.updateData(1L, "https://example.com/new", 10L);
+
+        ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+        verify(userService).save(saved.capture());
+        assertSame(caller, saved.getValue());
+        assertEquals(Set.of(kept, result), saved.getValue().getQrCodes());
+    }
+
+    @Test
+    void updateDataLinksToExistingRowForNewContentWhenDedupEnabled() {
+        properties.getDedup().setEnabled(true);
+        User owner = user(10L);
+        QRCode original = linkedQRCode(1L, "https://example.com/old", owner);
+        QRCode existing = linkedQRCode(3L, "https://example.com/new", user(12L));
+        when(qrCodeRepository.findById(1L)).thenReturn(Optional.of(original));
+        when(qrCodeRepository.findByContentHash(anyString())).thenReturn(Optional.of(existing));
+
+        QRCode result = qrCodeService.updateData(1L, "https://example.com/new", null);
+
+        assertSame(existing, result);
+        assertTrue(original.getUsers().isEmpty());
+        assertEquals(2, existing.getUsers().size());
+        verify(userService).save(owner);
+        verify(qrCodeRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void updateDataRejectsUserNotLinkedToRow() {
+        properties.getDedup().setEnabled(true);
+        QRCode qrCode = linkedQRCode(1L, "https://example.com/old", user(10L));
+        when(qrCodeRepository.findById(1L)).thenReturn(Optional.of(qrCode));
+        when(qrCodeRepository.findByContentHash(anyString())).thenReturn(Optional.empty());
+        when(userService.getById(99L)).thenReturn(user(99L));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.updateData(1L, "https://example.com/new", 99L));
+        verify(userService, never()).save(any());
+    }
+
+    @Test
+    void includeImagesRendersEachDistinctContentOnce() {
+        List<QRCodeResponse> responses = List.of(response(1L, "https://example.com/a"),
+                response(2L, "https://example.com/a"), response(3L, "https://example.com/b"));
+
+        qrCodeService.includeImages(responses, new ListImageOptions("image", 100, 120, null));
+
+        assertTrue(responses.get(0).getImageUrl().startsWith("data:image/png;base64,"));
+        assertEquals(responses.get(0).getImageUrl(), responses.get(1).getImageUrl());
+        assertNotEquals(responses.get(0).getImageUrl(), responses.get(2).getImageUrl());
+        assertEquals("100x120", responses.get(2).getSize());
+        assertEquals("#000000/#FFFFFF", responses.get(2).getColors());
+        verify(renderer, times(2)).renderPng(argThat((RenderSpec spec) -> spec.getWidth() == 100
+                && spec.getHeight() == 120));
+    }
+
+    @Test
+    void includeImagesUsesRenderProfile() {
+        RenderSpec template = RenderSpec.builder().width(200).height(200).onColor(0xFF112233).offColor(0xFFFFFFFF)
+                .profile("brand").build();
+        when(profileRegistry.get("brand"))
+                .thenReturn(new RenderProfile("brand", null, template, "200x200", "#112233/#FFFFFF"));
+        List<QRCodeResponse> responses = List.of(response(1L, "https://example.com/a"));
+
+        qrCodeService.includeImages(responses, new ListImageOptions("image", 100, 100, "brand"));
+
+        assertEquals("200x200", responses.get(0).getSize());
+        assertEquals("#112233/#FFFFFF", responses.get(0).getColors());
+        verify(renderer).renderPng(argThat((RenderSpec spec) -> spec.getOnColor() == 0xFF112233
+                && spec.getWidth() == 200 && "https://example.com/a".equals(spec.getData())));
+    }
+
+    @Test
+    void includeImagesLeavesResponsesAloneWithoutInclude() {
+        List<QRCodeResponse> responses = List.of(response(1L, "https://example.com/a"));
+
+        qrCodeService.includeImages(responses, new ListImageOptions(null, 100, 100, null));
+
+        assertEquals("", responses.get(0).getImageUrl());
+        verifyNoInteractions(renderer, profileRegistry);
+    }
+
+    @Test
+    void includeImagesRejectsTooManyCodes() {
+        properties.getListImages().setMaxImages(1);
+        List<QRCodeResponse> responses = List.of(response(1L, "https://example.com/a"),
+                response(2L, "https://example.com/b"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> qrCodeService.includeImages(responses, new ListImageOptions("image", null, null, null)));
+        verifyNoInteractions(renderer);
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static QRCode linkedQRCode(Long id, String data, User... users) {
+        QRCode qrCode = new QRCode();
+        qrCode.setId(id);
+        qrCode.setData(data);
+        for (User user : users) {
+            qrCode.addUser(user);
+        }
+        return qrCode;
+    }
+
+    private static QRCodeResponse response(Long id, String data) {
+        return QRCodeResponse.builder().id(id).data(data).imageUrl("").size("350x350").colors("#000000/#FFFFFF")
+                .build();
     }
-}
\ No newline at end of file
+}
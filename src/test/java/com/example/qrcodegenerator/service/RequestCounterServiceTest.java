@@ -0,0 +1,31 @@
+package com.example.qrcodegenerator.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCounterServiceTest {
+
+    @Test
+    void runUncountedSkipsOnlyTheCallingThread() {
+        RequestCounterService counter = RequestCounterService.getInstance();
+        long before = counter.getRequestCount();
+
+        counter.runUncounted(() -> {
+            counter.incrementCount();
+            counter.incrementCount();
+            Thread other = new Thread(counter::incrementCount);
+            other.start();
+            try {
+                other.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // one increment from the other thread, one from this getRequestCount call
+        assertEquals(before + 2, counter.getRequestCount());
+        counter.incrementCount();
+        assertEquals(before + 4, counter.getRequestCount());
+    }
+}
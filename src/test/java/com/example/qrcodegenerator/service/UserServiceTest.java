@@ -0,0 +1,177 @@
+package com.example.qrcodegenerator.service;
+
+import com.example.qrcodegenerator.cache.UserCache;
+import com.example.qrcodegenerator.cache.UserDirectory;
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.model.User;
+import com.example.qrcodegenerator.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserDirectory userDirectory;
+
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+        userDirectory = new UserDirectory();
+        userService = new UserService(userRepository, new UserCache(clock, new QRCodeProperties()), userDirectory);
+    }
+
+    @Test
+    void getByIdHitsDatabaseOnlyOnce() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L, "a@example.com")));
+
+        userService.getById(1L);
+        User result = userService.getById(1L);
+        assertEquals("a@example.com", result.getEmail());
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getByIdCachesMissingUsers() {
+        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertThrows(RuntimeException.class, () -> userService.getById(2L));
+        assertThrows(RuntimeException.class, () -> userService.getById(2L));
+        verify(userRepository, times(1)).findById(2L);
+    }
+
+    @Test
+    void updateUserInvalidatesOldEmail() {
+        User stored = user(1L, "old@example.com");
+        when(userRepository.findByEmail("old@example.com")).thenReturn(Optional.of(stored));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(stored));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        userService.findByEmailWithCache("old@example.com");
+
+        userService.updateUser(1L, user(null, "new@example.com"));
+        when(userRepository.findByEmail("old@example.com")).thenReturn(Optional.empty());
+
+        assertTrue(userService.findByEmailWithCache("old@example.com").isEmpty());
+        assertEquals(1L, userService.findByEmailWithCache("new@example.com").orElseThrow().getId());
+        verify(userRepository, never()).findByEmail("new@example.com");
+    }
+
+    @Test
+    void saveClearsNegativeEmailEntry() {
+        when(userRepository.findByEmail("c@example.com")).thenReturn(Optional.empty());
+        assertTrue(userService.findByEmailWithCache("c@example.com").isEmpty());
+
+        User created = user(3L, "c@example.com");
+        when(userRepository.save(created)).thenReturn(created);
+        userService.save(created);
+
+        assertTrue(userService.findByEmailWithCache("c@example.com").isPresent());
+        verify(userRepository, times(1)).findByEmail("c@example.com");
+    }
+
+    @Test
+    void searchByNameUsesDirectoryOnceLoaded() {
+        User alice = user(1L, "alice@example.com");
+        alice.setName("Alice Johnson");
+        User bob = user(2L, "bob@example.com");
+        bob.setName("Bob Alison");
+        User carol = user(3L, "carol@example.com");
+        carol.setName("Carol Smith");
+        when(userRepository.findAll()).thenReturn(List.of(alice, bob, carol));
+        userService.loadDirectory();
+
+        List<User> result = userService.searchByName("ALI", 10);
+        assertEquals(List.of(1L, 2L), result.stream().map(User::getId).toList());
+        assertEquals(List.of(3L), userService.searchByName("mit", 10).stream().map(User::getId).toList());
+        assertEquals(1, userService.searchByName("a", 1).size());
+        verify(userRepository, never()).findByNameContainingIgnoreCase(any(), any());
+    }
+
+    @Test
+    void directoryFollowsSaveUpdateAndDelete() {
+        when(userRepository.findAll()).thenReturn(List.of());
+        userService.loadDirectory();
+        User created = user(5L, "dana@example.com");
+        created.setName("Dana");
+        when(userRepository.save(created)).thenReturn(created);
+        userService.save(created);
+
+        assertEquals(1, userService.searchByEmailPrefix("DANA@", 10).size());
+
+        User details = user(null, "dana.new@example.com");
+        details.setName("Dana Scully");
+        when(userRepository.findById(5L)).thenReturn(Optional.of(created));
+        userService.updateUser(5L, details);
+        assertTrue(userService.findByEmailWithCache("dana@example.com").isEmpty());
+        assertEquals(5L, userService.findByEmailWithCache("dana.new@example.com").orElseThrow().getId());
+        assertEquals(1, userService.searchByName("scul", 10).size());
+
+        userService.deleteById(5L);
+        assertTrue(userService.searchByName("dana", 10).isEmpty());
+        // only the email the directory no longer knows falls back to the database
+        verify(userRepository).findByEmail("dana@example.com");
+        verify(userRepository, never()).findByEmail("dana.new@example.com");
+    }
+
+    @Test
+    void findByEmailFallsBackToDatabaseOnDirectoryMiss() {
+        when(userRepository.findAll()).thenReturn(List.of());
+        userService.loadDirectory();
+        User stored = user(6L, "eve@example.com");
+        when(userRepository.findByEmail("eve@example.com")).thenReturn(Optional.of(stored));
+
+        assertEquals(6L, userService.findByEmailWithCache("eve@example.com").orElseThrow().getId());
+
+        assertEquals(List.of(6L), userService.searchByEmailPrefix("eve", 10).stream().map(User::getId).toList());
+        assertTrue(userService.findByEmailWithCache("eve@example.com").isPresent());
+        verify(userRepository, times(1)).findByEmail("eve@example.com");
+    }
+
+    @Test
+    void loadDirectoryKeepsWritesMadeWhileReadingSnapshot() {
+        User deleted = user(1L, "gone@example.com");
+        User stale = user(2L, "old@example.com");
+        User created = user(3L, "new@example.com");
+        User renamed = user(2L, "renamed@example.com");
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.findAll()).thenAnswer(invocation -> {
+            userService.deleteById(1L);
+            userService.save(created);
+            userService.save(renamed);
+            return List.of(deleted, stale);
+        });
+
+        userService.loadDirectory();
+
+        assertEquals(2, userDirectory.size());
+        assertTrue(userService.searchByEmailPrefix("gone", 10).isEmpty());
+        assertTrue(userService.searchByEmailPrefix("old", 10).isEmpty());
+        assertEquals(List.of(2L), userService.searchByEmailPrefix("renamed", 10).stream().map(User::getId).toList());
+        assertEquals(List.of(3L), userService.searchByEmailPrefix("new", 10).stream().map(User::getId).toList());
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setName("user");
+        user.setEmail(email);
+        return user;
+    }
+}
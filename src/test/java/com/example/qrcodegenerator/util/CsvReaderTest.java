@@ -0,0 +1,69 @@
+package com.example.qrcodegenerator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void readsPlainRecords() throws IOException {
+        assertEquals(List.of(List.of("data", "userIds"), List.of("a", "1;2"), List.of("b", "")),
+                readAll("data,userIds\na,1;2\nb,\n"));
+    }
+
+    @Test
+    void keepsCommasInsideQuotedFields() throws IOException {
+        assertEquals(List.of(List.of("a,b", "c"), List.of("d", ",")), readAll("\"a,b\",c\nd,\",\"\n"));
+    }
+
+    @Test
+    void unescapesDoubledQuotes() throws IOException {
+        assertEquals(List.of(List.of("say \"hi\"", "\"")), readAll("\"say \"\"hi\"\"\",\"\"\"\"\n"));
+    }
+
+    @Test
+    void acceptsCrlfLineEndings() throws IOException {
+        assertEquals(List.of(List.of("data"), List.of("a"), List.of("b")), readAll("data\r\na\r\nb\r\n"));
+    }
+
+    @Test
+    void keepsLineBreaksInsideQuotedFieldsAndTracksRecordLines() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("data\n\"line one\nline two\"\nnext\n"));
+
+        assertEquals(List.of("data"), reader.next());
+        assertEquals(1, reader.getRecordLine());
+        assertEquals(List.of("line one\nline two"), reader.next());
+        assertEquals(2, reader.getRecordLine());
+        assertEquals(List.of("next"), reader.next());
+        assertEquals(4, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void readsLastRecordWithoutFinalNewline() throws IOException {
+        assertEquals(List.of(List.of("data"), List.of("a", "\"quoted\"")), readAll("data\na,\"\"\"quoted\"\"\""));
+    }
+
+    @Test
+    void rejectsUnterminatedQuotedField() {
+        CsvReader reader = new CsvReader(new StringReader("\"never closed\n"));
+
+        assertThrows(IOException.class, reader::next);
+    }
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(csv));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            records.add(new ArrayList<>(record));
+        }
+        return records;
+    }
+}
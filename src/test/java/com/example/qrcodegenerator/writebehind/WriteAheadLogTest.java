@@ -0,0 +1,167 @@
+package com.example.qrcodegenerator.writebehind;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+    private static final long SEGMENT_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversUncommittedRecordsAfterRestart() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES);
+        append(wal, "a");
+        append(wal, "b");
+        append(wal, "c");
+        wal.close();
+
+        WriteAheadLog restarted = new WriteAheadLog(directory, SEGMENT_BYTES);
+        assertEquals(List.of("a", "b", "c"), texts(restarted.recover()));
+        restarted.close();
+    }
+
+    @Test
+    void closeDeletesActiveSegmentOnceEverythingIsReleased() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES);
+        WriteAheadLog.Position position = append(wal, "a");
+        wal.release(position.segment());
+        wal.close();
+
+        assertEquals(0, segmentFiles().size());
+        WriteAheadLog restarted = new WriteAheadLog(directory, SEGMENT_BYTES);
+        assertTrue(restarted.recover().isEmpty());
+        restarted.close();
+    }
+
+    @Test
+    void skipsRecordsUpToCommitMarker() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES);
+        append(wal, "a");
+        WriteAheadLog.Position committed = append(wal, "b");
+        append(wal, "c");
+        wal.markCommitted(committed);
+        // a crash leaves the segment behind; the committed rows may have been deleted since
+        wal.close();
+
+        WriteAheadLog restarted = new WriteAheadLog(directory, SEGMENT_BYTES);
+        assertEquals(List.of("c"), texts(restarted.recover()));
+        restarted.close();
+    }
+
+    @Test
+    void newSegmentsAreNumberedPastCommitMarker() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES);
+        WriteAheadLog.Position first = append(wal, "a");
+        wal.markCommitted(first);
+        wal.release(first.segment());
+        wal.close();
+        assertEquals(0, segmentFiles().size());
+
+        WriteAheadLog restarted = new WriteAheadLog(directory, SEGMENT_BYTES);
+        WriteAheadLog.Position second = append(restarted, "b");
+        assertTrue(second.segment() > first.segment());
+        restarted.close();
+
+        WriteAheadLog again = new WriteAheadLog(directory, SEGMENT_BYTES);
+        assertEquals(List.of("b"), texts(again.recover()));
+        again.close();
+    }
+
+    @Test
+    void tornTailEndsSegment() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES);
+        append(wal, "first");
+        append(wal, "second");
+        wal.close();
+        Path segment = segmentFiles().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        WriteAheadLog restarted = new WriteAheadLog(directory, SEGMENT_BYTES);
+        assertEquals(List.of("first"), texts(restarted.recover()));
+        restarted.close();
+    }
+
+    @Test
+    void checksumMismatchEndsSegment() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES);
+        append(wal, "first");
+        append(wal, "second");
+        append(wal, "third");
+        wal.close();
+        Path segment = segmentFiles().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // first byte of "second"'s payload
+            long offset = 8 + "first".length() + 8;
+            file.seek(offset);
+            file.write('S');
+        }
+
+        WriteAheadLog restarted = new WriteAheadLog(directory, SEGMENT_BYTES);
+        assertEquals(List.of("first"), texts(restarted.recover()));
+        restarted.close();
+    }
+
+    @Test
+    void rollsSegmentsAndDeletesReleasedOnes() throws Exception {
+        // room for one 40-byte record per segment
+        WriteAheadLog wal = new WriteAheadLog(directory, 64);
+        WriteAheadLog.Position first = append(wal, "x".repeat(40));
+        WriteAheadLog.Position second = append(wal, "y".repeat(40));
+        WriteAheadLog.Position third = append(wal, "z".repeat(40));
+        assertTrue(first.segment() < second.segment() && second.segment() < third.segment());
+        assertEquals(3, segmentFiles().size());
+
+        wal.release(second.segment());
+        assertEquals(2, segmentFiles().size());
+        wal.release(third.segment());
+        // the active segment stays open until the log is closed
+        assertEquals(2, segmentFiles().size());
+        wal.close();
+
+        WriteAheadLog restarted = new WriteAheadLog(directory, 64);
+        assertEquals(List.of("x".repeat(40)), texts(restarted.recover()));
+        restarted.deleteRecovered();
+        restarted.close();
+        assertEquals(0, segmentFiles().size());
+    }
+
+    @Test
+    void rejectsOversizedRecord() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES);
+        assertThrows(IllegalArgumentException.class,
+                () -> wal.append(new byte[WriteAheadLog.MAX_RECORD_BYTES + 1], new CompletableFuture<>()));
+        wal.close();
+    }
+
+    private static WriteAheadLog.Position append(WriteAheadLog wal, String text) throws Exception {
+        CompletableFuture<WriteAheadLog.Position> future = new CompletableFuture<>();
+        wal.append(text.getBytes(StandardCharsets.UTF_8), future);
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    private static List<String> texts(List<byte[]> records) {
+        return records.stream().map(record -> new String(record, StandardCharsets.UTF_8)).toList();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.qrcodegenerator.writebehind;
+
+import com.example.qrcodegenerator.cache.SimpleCache;
+import com.example.qrcodegenerator.config.QRCodeProperties;
+import com.example.qrcodegenerator.repository.QRCodeIdAllocator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WriteBehindWriterTest {
+    @TempDir
+    Path directory;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final List<WriteBehindWriter> writers = new ArrayList<>();
+
+    @AfterEach
+    void stopWriters() {
+        writers.forEach(WriteBehindWriter::stop);
+    }
+
+    @Test
+    void restartAfterCleanStopReplaysNothing() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        WriteBehindWriter writer = writer(jdbcTemplate);
+        PendingWrite first = writer.stage("https://example.com/a", null);
+        PendingWrite second = writer.stage("https://example.com/b", 7L);
+        writer.awaitDurable(List.of(first, second));
+        writer.awaitCommitted(first.getId());
+        writer.awaitCommitted(second.getId());
+        writer.stop();
+        writers.remove(writer);
+
+        JdbcTemplate restartedJdbc = mock(JdbcTemplate.class);
+        writer(restartedJdbc);
+        verifyNoInteractions(restartedJdbc);
+    }
+
+    @Test
+    void replaysRowsLeftInLogAfterCrash() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, 1024 * 1024);
+        CompletableFuture<WriteAheadLog.Position> appended = new CompletableFuture<>();
+        wal.append(new PendingWrite(41, "https://example.com/left", 3L).encode(), appended);
+        appended.get(5, TimeUnit.SECONDS);
+        // never released, as if the process died before the writer committed it
+        wal.close();
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        writer(jdbcTemplate);
+
+        ArgumentCaptor<Collection<PendingWrite>> rows = rowsCaptor();
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into qrcode "), rows.capture(), anyInt(), any());
+        PendingWrite row = rows.getValue().iterator().next();
+        assertEquals(41, row.getId());
+        assertEquals("https://example.com/left", row.getData());
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into user_qr_codes "), anyCollection(), anyInt(), any());
+
+        JdbcTemplate restartedJdbc = mock(JdbcTemplate.class);
+        writer(restartedJdbc);
+        verifyNoInteractions(restartedJdbc);
+    }
+
+    private WriteBehindWriter writer(JdbcTemplate jdbcTemplate) throws Exception {
+        QRCodeProperties properties = new QRCodeProperties();
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setDirectory(directory.toString());
+        properties.getWriteBehind().setIdBlockSize(10);
+        QRCodeIdAllocator idAllocator = mock(QRCodeIdAllocator.class);
+        when(idAllocator.allocate(anyInt())).thenAnswer(invocation -> {
+            int count = invocation.getArgument(0);
+            long from = nextId.getAndAdd(count);
+            return LongStream.range(from, from + count).toArray();
+        });
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(mock(SessionFactory.class, RETURNS_MOCKS));
+
+        WriteBehindWriter writer = new WriteBehindWriter(properties, jdbcTemplate,
+                mock(PlatformTransactionManager.class), idAllocator, entityManagerFactory, new SimpleCache<>());
+        writer.start();
+        writers.add(writer);
+        return writer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Collection<PendingWrite>> rowsCaptor() {
+        return ArgumentCaptor.forClass(Collection.class);
+    }
+}